@@ -0,0 +1,144 @@
+package me.ghosthacks96.ghostsecure;
+
+import me.ghosthacks96.ghostsecure.utils.file_handlers.Logging;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
+import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Entry point that runs only the blocker, without the JavaFX toolkit, splash, login or tray.
+ *
+ * It opens the settings, account, program and folder stores and starts the enforcement engine if
+ * the account is in lock mode, so protection begins as soon as the stores are decrypted. Nothing
+ * here creates JavaFX objects; the shared state still lives in {@link Main}'s static fields, but the
+ * toolkit is never started. It holds the same storage directory lock as the full application, so only
+ * one of them runs at a time. Meant to be launched with a small heap, e.g.
+ * {@code java -Xmx48m -XX:+UseSerialGC -m ghostsecure/me.ghosthacks96.ghostsecure.HeadlessBlocker}
+ * or {@code GhostSecure --headless}.
+ */
+public final class HeadlessBlocker {
+
+    public static final String HEADLESS_ARGUMENT = "--headless";
+
+    private static final String[] NO_DEPENDENCIES = {};
+    private static final String PHASE_OPEN_SYSTEM_CONFIG = "open-system-config";
+    private static final String PHASE_OPEN_ACCOUNT = "open-account";
+    private static final String PHASE_OPEN_PROGRAMS = "open-programs";
+    private static final String PHASE_OPEN_FOLDERS = "open-folders";
+    private static final String PHASE_LOAD_SYSTEM_CONFIG = "load-system-config";
+    private static final String PHASE_LOAD_ACCOUNT = "load-account";
+    private static final String PHASE_LOAD_PROGRAMS = "load-programs";
+    private static final String PHASE_LOAD_FOLDERS = "load-folders";
+
+    private static final CountDownLatch stopped = new CountDownLatch(1);
+
+    private HeadlessBlocker() {
+    }
+
+    public static void main(String[] args) {
+        Main.logger = new Logging();
+        // The debug console is a JavaFX window, debug output still goes to the log file
+        Main.logger.setDebugConsoleEnabled(false);
+        Main.logger.logInfo("Starting GhostSecure blocker in headless mode... v" + Main.VERSION);
+
+        // The full application must not write the same stores while the blocker runs, nor a second blocker
+        if (!Main.acquireStorageLock()) {
+            Main.logger.onShutdown();
+            System.exit(1);
+        }
+
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) ->
+                Main.logger.logError("Uncaught exception in thread: " + thread.getName(), throwable));
+        Runtime.getRuntime().addShutdownHook(new Thread(HeadlessBlocker::shutDown, "Headless-Shutdown"));
+
+        try {
+            loadStores();
+        } catch (Exception e) {
+            Main.logger.logError("Failed to load storage for headless blocker: " + e.getMessage(), e);
+            shutDown();
+            System.exit(1);
+        }
+
+        String mode = Main.accountStorage.get("mode", "unlock");
+        if (!"lock".equals(mode)) {
+            Main.logger.logInfo("Account is unlocked, headless blocker has nothing to enforce.");
+            shutDown();
+            return;
+        }
+
+        if (!ServiceController.startBlockerDaemon()) {
+            shutDown();
+            System.exit(1);
+        }
+
+        // The enforcement threads are daemons, so hold the process open until it is told to stop
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Open and load the stores the blocker needs. Key derivation and decryption run on parallel workers
+     * the same way as in the full application; legacy data migration is left to the full application.
+     */
+    private static void loadStores() {
+        StartupPipeline pipeline = new StartupPipeline(new StartupPipeline.PhaseListener() {
+            @Override
+            public void phaseStarted(String name, String message) {
+                Main.logger.logDebug(message);
+            }
+
+            @Override
+            public void phaseFinished(String name, long durationMs, int finishedCount, int totalCount) {
+            }
+        });
+
+        pipeline.addPhase(PHASE_OPEN_SYSTEM_CONFIG, "Opening system settings...", NO_DEPENDENCIES,
+                () -> Main.systemConfigStorage = new StorageManager("system-config", false));
+        pipeline.addPhase(PHASE_OPEN_ACCOUNT, "Deriving storage keys...", NO_DEPENDENCIES,
+                () -> Main.accountStorage = new StorageManager("account"));
+        pipeline.addPhase(PHASE_OPEN_PROGRAMS, "Deriving storage keys...", NO_DEPENDENCIES,
+                () -> Main.programStorage = new StorageManager("programs"));
+        pipeline.addPhase(PHASE_OPEN_FOLDERS, "Deriving storage keys...", NO_DEPENDENCIES,
+                () -> Main.folderStorage = new StorageManager("folders"));
+
+        pipeline.addPhase(PHASE_LOAD_SYSTEM_CONFIG, "Loading system settings...", new String[]{PHASE_OPEN_SYSTEM_CONFIG}, () -> {
+            Main.systemConfigStorage.loadData();
+            Main.DEBUG_MODE = Main.systemConfigStorage.get("debug_mode", false);
+        });
+        pipeline.addPhase(PHASE_LOAD_ACCOUNT, "Loading account...", new String[]{PHASE_OPEN_ACCOUNT},
+                () -> Main.accountStorage.loadData());
+        pipeline.addPhase(PHASE_LOAD_PROGRAMS, "Loading programs...",
+                new String[]{PHASE_OPEN_PROGRAMS, PHASE_LOAD_SYSTEM_CONFIG}, () -> {
+                    Main.configureListStorage(Main.programStorage);
+                    Main.programStorage.loadData();
+                });
+        pipeline.addPhase(PHASE_LOAD_FOLDERS, "Loading folders...",
+                new String[]{PHASE_OPEN_FOLDERS, PHASE_LOAD_SYSTEM_CONFIG}, () -> {
+                    Main.configureListStorage(Main.folderStorage);
+                    Main.folderStorage.loadData();
+                });
+
+        pipeline.start(4).join();
+    }
+
+    private static synchronized void shutDown() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+
+        ServiceController.stopBlockerDaemon();
+        for (StorageManager storage : new StorageManager[]{Main.programStorage, Main.folderStorage,
+                Main.accountStorage, Main.systemConfigStorage}) {
+            if (storage != null) {
+                storage.flush();
+            }
+        }
+        Main.logger.logInfo("Headless blocker stopped.");
+        Main.logger.onShutdown();
+        stopped.countDown();
+    }
+}
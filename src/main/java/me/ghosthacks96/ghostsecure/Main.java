@@ -13,19 +13,26 @@ import me.ghosthacks96.ghostsecure.gui.SubGUIHandler;
 import me.ghosthacks96.ghostsecure.gui.extras.SplashGUI;
 import me.ghosthacks96.ghostsecure.utils.api_handlers.RecoveryHandler;
 import me.ghosthacks96.ghostsecure.utils.api_handlers.Update;
+import me.ghosthacks96.ghostsecure.utils.auth.SecondFactorProvider;
+import me.ghosthacks96.ghostsecure.utils.auth.TwoFactorAuthUtil;
 import me.ghosthacks96.ghostsecure.utils.debug.DebugConsole;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.BinaryStorageCodec;
 import me.ghosthacks96.ghostsecure.utils.file_handlers.Config;
 import me.ghosthacks96.ghostsecure.utils.file_handlers.Logging;
 import me.ghosthacks96.ghostsecure.utils.file_handlers.MigrationUtil;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageCodec;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageDirectoryLock;
 import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
 import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
 import me.ghosthacks96.ghostsecure.utils.services.SystemTrayIntegration;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 import static me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils.hashPassword;
@@ -40,6 +47,32 @@ public class Main extends Application {
     public static final String VERSION = "2.3.6";
     public static final String APP_DATA_PATH = System.getenv("APPDATA") + "/ghosthacks96/GhostSecure/";
     private static final String DEBUG_FILE_PATH = APP_DATA_PATH + "debug.txt";
+    private static final long DEFAULT_STORAGE_WRITE_DEBOUNCE_MS = 250;
+    private static final long DEFAULT_STORAGE_JOURNAL_MAX_BYTES = 1024 * 1024;
+    private static final long DEFAULT_STORAGE_JOURNAL_MAX_RECORDS = 1000;
+    private static final String RESOURCE_ROOT = "/me/ghosthacks96/ghostsecure/";
+    private static final String FXML_CONTROLLER_ATTRIBUTE = "fx:controller=\"";
+    private static final String[] PRELOADED_FXML = {
+            "home.fxml", "login.fxml", "setPasswordGUI.fxml", "twoFactorAuth.fxml",
+            "tabs/ProgramManagement.fxml", "tabs/FolderManagerScreen.fxml", "tabs/ServiceController_Screen.fxml",
+            "tabs/SettingsScreen.fxml", "tabs/AboutScreen.fxml"
+    };
+
+    // Startup phases
+    private static final String[] NO_DEPENDENCIES = {};
+    private static final String PHASE_UPDATE = "update";
+    private static final String PHASE_PRELOAD_UI = "preload-ui";
+    private static final String PHASE_LEGACY_CONFIG = "legacy-config";
+    private static final String PHASE_OPEN_SYSTEM_CONFIG = "open-system-config";
+    private static final String PHASE_OPEN_ACCOUNT = "open-account";
+    private static final String PHASE_OPEN_PROGRAMS = "open-programs";
+    private static final String PHASE_OPEN_FOLDERS = "open-folders";
+    private static final String PHASE_MIGRATION = "migration";
+    private static final String PHASE_LOAD_SYSTEM_CONFIG = "load-system-config";
+    private static final String PHASE_LOAD_ACCOUNT = "load-account";
+    private static final String PHASE_LOAD_PROGRAMS = "load-programs";
+    private static final String PHASE_LOAD_FOLDERS = "load-folders";
+    private static final String PHASE_RECOVERY = "recovery";
 
     public static Config config;
     public static Logging logger;
@@ -60,10 +93,15 @@ public class Main extends Application {
     public static boolean use2FA = true; // Enable two-factor authentication by default
     public static boolean DEBUG_MODE = false;
     private static SplashGUI splashController;
+    private static final CompletableFuture<Void> mainInterfaceReady = new CompletableFuture<>();
 
     private static boolean MIGRATION_PERFORMED = false; // Flag to track if migration has been performed
 
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(HeadlessBlocker.HEADLESS_ARGUMENT)) {
+            HeadlessBlocker.main(args);
+            return;
+        }
         initializeLogging();
         launch();
     }
@@ -92,6 +130,13 @@ public class Main extends Application {
     @Override
     public void start(Stage stage) {
         try {
+            // The headless blocker or another window would write the same stores; the app exits once the error is closed
+            if (!acquireStorageLock()) {
+                sgh.showError("Already Running", "GhostSecure is already running, either in another window or as the "
+                        + "headless blocker. Close it before starting GhostSecure again.");
+                return;
+            }
+
             // Set up global uncaught exception handler
             Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
                 logger.logError("Uncaught exception in thread: " + thread.getName(), throwable);
@@ -112,6 +157,112 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Take the storage directory lock shared with the headless blocker.
+     *
+     * @return false if another process holds it or it cannot be taken
+     */
+    static boolean acquireStorageLock() {
+        try {
+            if (StorageDirectoryLock.acquire()) {
+                return true;
+            }
+            logger.logError("Storage is in use by another GhostSecure process, not starting.");
+        } catch (IOException e) {
+            logger.logError("Failed to lock the storage directory, not starting: " + e.getMessage(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Set up persistence for the program and folder lists, which grow large and are edited in bursts:
+     * the compact binary codec and journaled appends by default, otherwise coalesced full saves.
+     */
+    static void configureListStorage(StorageManager storage) {
+        storage.setCodec(getConfiguredCodec());
+        if (systemConfigStorage.get("storage_journal", true)) {
+            storage.enableJournal(
+                    getConfiguredLong("storage_journal_max_bytes", DEFAULT_STORAGE_JOURNAL_MAX_BYTES),
+                    getConfiguredLong("storage_journal_max_records", DEFAULT_STORAGE_JOURNAL_MAX_RECORDS));
+        } else {
+            storage.setWriteBehind(getConfiguredLong("storage_write_debounce_ms", DEFAULT_STORAGE_WRITE_DEBOUNCE_MS));
+        }
+    }
+
+    private static StorageCodec getConfiguredCodec() {
+        String name = String.valueOf(systemConfigStorage.get("storage_codec", BinaryStorageCodec.NAME));
+        try {
+            return StorageCodec.forName(name);
+        } catch (IllegalArgumentException e) {
+            logger.logWarning("Unknown storage codec '" + name + "', using " + BinaryStorageCodec.NAME);
+            return BinaryStorageCodec.INSTANCE;
+        }
+    }
+
+    private static long getConfiguredLong(String key, long defaultValue) {
+        Object value = systemConfigStorage.get(key, defaultValue);
+        return value instanceof Number number ? number.longValue() : defaultValue;
+    }
+
+    /**
+     * Load the controller classes and read the FXML of the main screens ahead of the first scene,
+     * so class loading and resource reads overlap with key derivation instead of following login.
+     * Only an optimization: failures are logged and startup goes on. Controllers are loaded without
+     * being initialized, so their static initializers still run on the JavaFX thread.
+     */
+    private static void preloadInterfaceResources() {
+        try {
+            ClassLoader classLoader = Main.class.getClassLoader();
+            for (String fxml : PRELOADED_FXML) {
+                String content;
+                try (InputStream in = Main.class.getResourceAsStream(RESOURCE_ROOT + fxml)) {
+                    if (in == null) {
+                        logger.logWarning("Missing interface resource: " + fxml);
+                        continue;
+                    }
+                    content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+
+                int start = content.indexOf(FXML_CONTROLLER_ATTRIBUTE);
+                if (start >= 0) {
+                    start += FXML_CONTROLLER_ATTRIBUTE.length();
+                    Class.forName(content.substring(start, content.indexOf('"', start)), false, classLoader);
+                }
+            }
+
+            try (InputStream in = Main.class.getResourceAsStream(RESOURCE_ROOT + "css/dark-theme.css")) {
+                if (in != null) {
+                    in.readAllBytes();
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            logger.logWarning("Failed to preload interface resources: " + e.getMessage());
+        }
+    }
+
+    private static int getStartupParallelism() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start the update check without waiting for it. An available update is offered once the main
+     * window is up, so neither the network nor the prompt delays login.
+     */
+    private static void startBackgroundUpdateCheck() {
+        Update update = new Update("GhostSecure", VERSION);
+        update.addUpdateListener(response -> {
+            String message = "GhostSecure " + response.latest_version + " is available. Install it now?";
+            if (sgh.showConfirmation("Update Available", message)) {
+                CompletableFuture.runAsync(() -> {
+                    if (update.installUpdate(response)) {
+                        System.exit(0);
+                    }
+                });
+            }
+        }, command -> mainInterfaceReady.thenRun(() -> Platform.runLater(command)));
+        update.checkInBackground();
+    }
+
     /**
      * Display the splash screen
      */
@@ -158,6 +309,8 @@ public class Main extends Application {
      */
     private Task<Boolean> createInitializationTask() {
         return new Task<>() {
+            private StartupPipeline pipeline;
+
             @Override
             protected Boolean call() {
                 try {
@@ -175,11 +328,13 @@ public class Main extends Application {
             }
 
             private Boolean performInitialization() throws InterruptedException, ExecutionException {
-                return checkForUpdates()
-                        .thenCompose(v -> loadConfiguration())
-                        .thenCompose(v -> checkRecoveryStatus())
+                pipeline = createStartupPipeline();
+                CompletableFuture<Void> startup = pipeline.start(getStartupParallelism());
+
+                // Login only needs the account and system settings, the program and folder lists keep loading behind it
+                return pipeline.completionOf(PHASE_LOAD_SYSTEM_CONFIG, PHASE_RECOVERY)
                         .thenCompose(v -> handleConfigurationAndLogin())
-                        .thenApply(result -> {
+                        .thenCombine(startup, (result, v) -> {
                             updateSplashMessage("Preparing main interface...");
                             return result;
                         })
@@ -199,75 +354,83 @@ public class Main extends Application {
                 return false;
             }
 
-            private CompletableFuture<Void> checkForUpdates() {
-                return CompletableFuture.supplyAsync(() -> {
-                    try {
-                        updateSplashMessage("Checking for updates...");
-                        Update update = new Update("GhostSecure", VERSION);
-                        if (update.updateCheck()) {
-                            System.exit(0);
-                        }
-                        return null;
-                    } catch (Exception e) {
-                        logger.logError("Error checking for updates: " + e.getMessage(), e);
-                        throw new CompletionException("Update check failed", e);
+            /**
+             * Build the startup graph. Every store derives its key and decrypts on its own worker,
+             * overlapping with the legacy config's key derivation and UI preloading.
+             */
+            private StartupPipeline createStartupPipeline() {
+                StartupPipeline startupPipeline = new StartupPipeline(new StartupPipeline.PhaseListener() {
+                    @Override
+                    public void phaseStarted(String name, String message) {
+                        updateSplashMessage(message);
                     }
-                });
-            }
 
-            private CompletableFuture<Void> loadConfiguration() {
-                return CompletableFuture.supplyAsync(() -> {
-                    try {
-                        updateSplashMessage("Loading configuration...");
-                        config = new Config();
-
-                        programStorage = new StorageManager("programs");
-                        folderStorage = new StorageManager("folders");
-                        accountStorage = new StorageManager("account");
-                        systemConfigStorage = new StorageManager("system-config", false); // Unencrypted storage for system settings
-
-                        // Load data from config and migrate to storage managers
-                        if(MigrationUtil.checkAndMigrateData()){
-                            MIGRATION_PERFORMED = true;
-                        }
-
-                        // Load data from storage managers
-                        programStorage.loadData();
-                        folderStorage.loadData();
-                        accountStorage.loadData();
-                        systemConfigStorage.loadData();
-
-                        shiftDebug(systemConfigStorage.get("debug_mode", false));
-                        use2FA = systemConfigStorage.get("enable_2fa", false);
-
-                        return null;
-                    } catch (Exception e) {
-                        logger.logError("Error loading configuration: " + e.getMessage(), e);
-                        throw new CompletionException("Configuration loading failed", e);
+                    @Override
+                    public void phaseFinished(String name, long durationMs, int finishedCount, int totalCount) {
+                        splashController.updateProgress((double) finishedCount / totalCount);
                     }
                 });
+
+                startupPipeline.addPhase(PHASE_PRELOAD_UI, "Preparing interface...", NO_DEPENDENCIES,
+                        Main::preloadInterfaceResources);
+
+                startupPipeline.addPhase(PHASE_LEGACY_CONFIG, "Checking legacy configuration...", NO_DEPENDENCIES,
+                        () -> config = new Config());
+                startupPipeline.addPhase(PHASE_OPEN_SYSTEM_CONFIG, "Opening system settings...", NO_DEPENDENCIES,
+                        () -> systemConfigStorage = new StorageManager("system-config", false)); // Unencrypted storage for system settings
+                startupPipeline.addPhase(PHASE_OPEN_ACCOUNT, "Deriving storage keys...", NO_DEPENDENCIES,
+                        () -> accountStorage = new StorageManager("account"));
+                startupPipeline.addPhase(PHASE_OPEN_PROGRAMS, "Deriving storage keys...", NO_DEPENDENCIES,
+                        () -> programStorage = new StorageManager("programs"));
+                startupPipeline.addPhase(PHASE_OPEN_FOLDERS, "Deriving storage keys...", NO_DEPENDENCIES,
+                        () -> folderStorage = new StorageManager("folders"));
+
+                // Migration writes into every store, so all of them wait for it before loading
+                startupPipeline.addPhase(PHASE_MIGRATION, "Checking for data migration...",
+                        new String[]{PHASE_LEGACY_CONFIG, PHASE_OPEN_SYSTEM_CONFIG, PHASE_OPEN_ACCOUNT,
+                                PHASE_OPEN_PROGRAMS, PHASE_OPEN_FOLDERS},
+                        () -> {
+                            if (MigrationUtil.checkAndMigrateData()) {
+                                MIGRATION_PERFORMED = true;
+                            }
+                        });
+
+                // System settings load first among the lists since they configure the others
+                startupPipeline.addPhase(PHASE_LOAD_SYSTEM_CONFIG, "Loading system settings...", new String[]{PHASE_MIGRATION}, () -> {
+                    systemConfigStorage.loadData();
+                    shiftDebug(systemConfigStorage.get("debug_mode", false));
+                    use2FA = systemConfigStorage.get("enable_2fa", false);
+                });
+                // Only starts the check, which caches its result in the system settings and reports back once the UI is up
+                startupPipeline.addPhase(PHASE_UPDATE, "Checking for updates...", new String[]{PHASE_LOAD_SYSTEM_CONFIG},
+                        Main::startBackgroundUpdateCheck);
+                startupPipeline.addPhase(PHASE_LOAD_ACCOUNT, "Loading account...", new String[]{PHASE_MIGRATION},
+                        () -> accountStorage.loadData());
+                startupPipeline.addPhase(PHASE_LOAD_PROGRAMS, "Loading programs...", new String[]{PHASE_LOAD_SYSTEM_CONFIG}, () -> {
+                    configureListStorage(programStorage);
+                    programStorage.loadData();
+                });
+                startupPipeline.addPhase(PHASE_LOAD_FOLDERS, "Loading folders...", new String[]{PHASE_LOAD_SYSTEM_CONFIG}, () -> {
+                    configureListStorage(folderStorage);
+                    folderStorage.loadData();
+                });
+
+                startupPipeline.addPhase(PHASE_RECOVERY, "Checking recovery status...", new String[]{PHASE_LOAD_ACCOUNT},
+                        this::checkRecoveryStatus);
+                return startupPipeline;
             }
 
-            private CompletableFuture<Void> checkRecoveryStatus() {
-                return CompletableFuture.supplyAsync(() -> {
-                    try {
-                        recoveryHandler = new RecoveryHandler();
-                        updateSplashMessage("Checking recovery status...");
+            private void checkRecoveryStatus() {
+                recoveryHandler = new RecoveryHandler();
 
-                        if (recoveryHandler.shouldEnterRecoveryMode()) {
-                            return handleRecoveryMode();
-                        } else {
-                            logger.logInfo("No recovery needed. Continuing with normal startup.");
-                            return null;
-                        }
-                    } catch (Exception e) {
-                        logger.logError("Error during recovery check: " + e.getMessage(), e);
-                        throw new CompletionException("Recovery process failed", e);
-                    }
-                });
+                if (recoveryHandler.shouldEnterRecoveryMode()) {
+                    handleRecoveryMode();
+                } else {
+                    logger.logInfo("No recovery needed. Continuing with normal startup.");
+                }
             }
 
-            private Void handleRecoveryMode() {
+            private void handleRecoveryMode() {
                 logger.logInfo("Recovery mode detected. Initiating password recovery...");
 
                 Platform.runLater(() -> splashController.close());
@@ -279,7 +442,6 @@ public class Main extends Application {
                     sgh.showError("Recovery Failed", "Password recovery failed. Please contact support.");
                     throw new RuntimeException("Recovery failed");
                 }
-                return null;
             }
 
             private CompletableFuture<Boolean> handleConfigurationAndLogin() {
@@ -375,6 +537,8 @@ public class Main extends Application {
                         logger.logError("Two-factor authentication failed.");
                     }
                     accountStorage.put("mode", "lock");
+                    // The blocker enforces the program and folder lists, which may still be loading
+                    pipeline.completionOf(PHASE_LOAD_PROGRAMS, PHASE_LOAD_FOLDERS).join();
                     ServiceController.startBlockerDaemon();
                 } else {
                     logger.logInfo("Authentication successful.");
@@ -389,37 +553,28 @@ public class Main extends Application {
              */
             private boolean handleTwoFactorAuthentication() {
                 try {
+                    if(!use2FA) {
+                        return true;
+                    }
+
                     // Get the user's email from storage
                     String userEmail = accountStorage.get("email", "");
-                    if (userEmail.isEmpty()) {
+                    SecondFactorProvider provider = TwoFactorAuthUtil.getSecondFactorProvider(userEmail);
+                    if (provider == null) {
                         logger.logError("No email address found for two-factor authentication.");
                         sgh.showError("Authentication Error", "No email address found for two-factor authentication. Please contact support.");
                         return false;
                     }
 
-                    if(!use2FA) {
-                        return true;
-                    }
-
-                    // Send verification code
-                    String verificationCode = me.ghosthacks96.ghostsecure.utils.auth.TwoFactorAuthUtil.sendVerificationCode(userEmail);
-                    if (verificationCode == null) {
+                    // Send the verification code if the provider needs one
+                    if (!provider.startChallenge()) {
                         logger.logError("Failed to send verification code.");
                         sgh.showError("Authentication Error", "Failed to send verification code. Please check your email settings and try again.");
                         return false;
                     }
 
-                    // Create a resend action
-                    Runnable resendAction = () -> {
-                        String newCode = me.ghosthacks96.ghostsecure.utils.auth.TwoFactorAuthUtil.sendVerificationCode(userEmail);
-                        if (newCode != null) {
-                            // Update the expected code in the controller
-                            // This is handled by the TwoFactorAuthGUI class
-                        }
-                    };
-
                     // Show 2FA prompt
-                    return sgh.showTwoFactorAuthPrompt(verificationCode, userEmail, resendAction);
+                    return sgh.showTwoFactorAuthPrompt(provider, userEmail);
                 } catch (Exception e) {
                     logger.logError("Error during two-factor authentication: " + e.getMessage(), e);
                     sgh.showError("Authentication Error", "An error occurred during two-factor authentication: " + e.getMessage());
@@ -512,24 +667,25 @@ public class Main extends Application {
         } else {
             logger.logInfo("Auto-start enabled. Starting minimized to system tray.");
         }
+        mainInterfaceReady.complete(null);
     }
 
     public void shutDownSystem() {
         SystemTrayIntegration.removeTrayIcon();
         ServiceController.stopBlockerDaemon();
 
-        // Save data to storage managers
+        // Write out anything still pending in the storage managers
         if (programStorage != null) {
-            programStorage.saveData();
+            programStorage.flush();
         }
         if (folderStorage != null) {
-            folderStorage.saveData();
+            folderStorage.flush();
         }
         if (accountStorage != null) {
-            accountStorage.saveData();
+            accountStorage.flush();
         }
         if (systemConfigStorage != null) {
-            systemConfigStorage.saveData();
+            systemConfigStorage.flush();
         }
 
         if (DEBUG_MODE) DebugConsole.getInstance().killConsole();
@@ -0,0 +1,195 @@
+package me.ghosthacks96.ghostsecure;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static me.ghosthacks96.ghostsecure.Main.logger;
+
+/**
+ * Runs the startup phases as a dependency graph.
+ *
+ * Each phase starts as soon as all phases it depends on have finished, so independent work such as
+ * key derivation, decryption and the update check runs concurrently. A failed phase fails every
+ * phase that depends on it, but unrelated phases still run to completion.
+ */
+final class StartupPipeline {
+
+    /**
+     * Work done by one phase.
+     */
+    @FunctionalInterface
+    interface PhaseAction {
+        void run() throws Exception;
+    }
+
+    /**
+     * Receives phase progress, called from the worker threads.
+     */
+    interface PhaseListener {
+        void phaseStarted(String name, String message);
+
+        void phaseFinished(String name, long durationMs, int finishedCount, int totalCount);
+    }
+
+    private static final class Phase {
+        final String name;
+        final String message;
+        final String[] dependencies;
+        final PhaseAction action;
+        CompletableFuture<Void> future;
+
+        Phase(String name, String message, String[] dependencies, PhaseAction action) {
+            this.name = name;
+            this.message = message;
+            this.dependencies = dependencies;
+            this.action = action;
+        }
+    }
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final PhaseListener listener;
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private ExecutorService executor;
+    private CompletableFuture<Void> completion;
+
+    StartupPipeline(PhaseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Register a phase. Phases may be registered in any order, dependencies are resolved by {@link #start()}.
+     *
+     * @param name unique phase name
+     * @param message status shown while the phase runs
+     * @param dependencies names of the phases that must finish first
+     * @param action the work
+     * @return this pipeline
+     */
+    StartupPipeline addPhase(String name, String message, String[] dependencies, PhaseAction action) {
+        if (completion != null) {
+            throw new IllegalStateException("Startup pipeline already started");
+        }
+        if (phases.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate startup phase: " + name);
+        }
+        phases.put(name, new Phase(name, message, dependencies, action));
+        return this;
+    }
+
+    /**
+     * Schedule every phase.
+     *
+     * @param parallelism number of worker threads
+     * @return completes when every phase has finished, exceptionally if any phase failed
+     */
+    CompletableFuture<Void> start(int parallelism) {
+        if (completion != null) {
+            throw new IllegalStateException("Startup pipeline already started");
+        }
+
+        List<Phase> order = topologicalOrder();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "Startup-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        for (Phase phase : order) {
+            CompletableFuture<?>[] dependencies = new CompletableFuture<?>[phase.dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = phases.get(phase.dependencies[i]).future;
+            }
+            phase.future = CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> runPhase(phase), executor);
+        }
+
+        CompletableFuture<?>[] all = order.stream().map(phase -> phase.future).toArray(CompletableFuture<?>[]::new);
+        completion = CompletableFuture.allOf(all).whenComplete((v, e) -> {
+            executor.shutdown();
+            if (e == null) {
+                logger.logInfo("Startup pipeline finished in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        });
+        return completion;
+    }
+
+    /**
+     * Get a future for a set of phases, e.g. to start the login prompt before everything is loaded.
+     *
+     * @param names the phases to wait for
+     * @return completes when all of them have finished
+     */
+    CompletableFuture<Void> completionOf(String... names) {
+        if (completion == null) {
+            throw new IllegalStateException("Startup pipeline not started");
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            futures[i] = getPhase(names[i]).future;
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    private void runPhase(Phase phase) {
+        listener.phaseStarted(phase.name, phase.message);
+        long start = System.nanoTime();
+        try {
+            phase.action.run();
+        } catch (Exception e) {
+            logger.logError("Startup phase '" + phase.name + "' failed: " + e.getMessage(), e);
+            throw new CompletionException(e);
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        logger.logDebug("Startup phase '" + phase.name + "' finished in " + durationMs + " ms");
+        listener.phaseFinished(phase.name, durationMs, finishedCount.incrementAndGet(), phases.size());
+    }
+
+    private Phase getPhase(String name) {
+        Phase phase = phases.get(name);
+        if (phase == null) {
+            throw new IllegalArgumentException("Unknown startup phase: " + name);
+        }
+        return phase;
+    }
+
+    /**
+     * Order the phases so every phase comes after its dependencies, rejecting unknown names and cycles.
+     */
+    private List<Phase> topologicalOrder() {
+        List<Phase> order = new ArrayList<>(phases.size());
+        Set<String> done = new HashSet<>();
+        Set<String> visiting = new HashSet<>();
+        for (Phase phase : phases.values()) {
+            visit(phase, done, visiting, order);
+        }
+        return order;
+    }
+
+    private void visit(Phase phase, Set<String> done, Set<String> visiting, List<Phase> order) {
+        if (done.contains(phase.name)) {
+            return;
+        }
+        if (!visiting.add(phase.name)) {
+            throw new IllegalStateException("Startup phases form a cycle at: " + phase.name);
+        }
+        for (String dependency : phase.dependencies) {
+            visit(getPhase(dependency), done, visiting, order);
+        }
+        visiting.remove(phase.name);
+        done.add(phase.name);
+        order.add(phase);
+    }
+}
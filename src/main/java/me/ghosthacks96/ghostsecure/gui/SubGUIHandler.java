@@ -4,6 +4,8 @@ import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.TextArea;
 import javafx.scene.image.Image;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -12,6 +14,7 @@ import me.ghosthacks96.ghostsecure.Main;
 import me.ghosthacks96.ghostsecure.gui.auth.LoginGUI;
 import me.ghosthacks96.ghostsecure.gui.auth.SetPasswordGUI;
 import me.ghosthacks96.ghostsecure.gui.auth.TwoFactorAuthGUI;
+import me.ghosthacks96.ghostsecure.utils.auth.SecondFactorProvider;
 import org.kordamp.bootstrapfx.BootstrapFX;
 
 import java.io.IOException;
@@ -153,6 +156,50 @@ public class SubGUIHandler {
         showAlert(Alert.AlertType.ERROR, title, message);
     }
 
+    /**
+     * Ask the user a yes/no question and wait for the answer
+     * @return true if the user confirmed
+     */
+    public boolean showConfirmation(String title, String message) {
+        Main.logger.logDebug("showConfirmation() called: " + title + " - " + message);
+
+        if (Platform.isFxApplicationThread()) {
+            return showConfirmationDirectly(title, message);
+        }
+        return Boolean.TRUE.equals(executeOnFxThread(() -> showConfirmationDirectly(title, message)));
+    }
+
+    private boolean showConfirmationDirectly(String title, String message) {
+        Alert alert = createAlert(Alert.AlertType.CONFIRMATION, title, message);
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
+    /**
+     * Show text the user needs to copy, such as a secret key, and wait until they continue
+     * @return true if the user pressed OK
+     */
+    public boolean showCopyableText(String title, String message, String text) {
+        Main.logger.logDebug("showCopyableText() called: " + title);
+
+        if (Platform.isFxApplicationThread()) {
+            return showCopyableTextDirectly(title, message, text);
+        }
+        return Boolean.TRUE.equals(executeOnFxThread(() -> showCopyableTextDirectly(title, message, text)));
+    }
+
+    private boolean showCopyableTextDirectly(String title, String message, String text) {
+        Alert alert = createAlert(Alert.AlertType.CONFIRMATION, title, message);
+
+        TextArea textArea = new TextArea(text);
+        textArea.setEditable(false);
+        textArea.setWrapText(true);
+        textArea.setPrefRowCount(4);
+        alert.getDialogPane().setExpandableContent(textArea);
+        alert.getDialogPane().setExpanded(true);
+
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
     /**
      * Create and configure the login stage
      */
@@ -296,21 +343,20 @@ public class SubGUIHandler {
 
     /**
      * Shows the two-factor authentication dialog and waits for user input
-     * @param verificationCode The code that the user should enter
+     * @param provider The second factor to verify; its challenge must already be started
      * @param email The user's email address
-     * @param resendAction A runnable that will be executed when the resend button is clicked
      * @return true if verification was successful, false otherwise
      */
-    public boolean showTwoFactorAuthPrompt(String verificationCode, String email, Runnable resendAction) {
+    public boolean showTwoFactorAuthPrompt(SecondFactorProvider provider, String email) {
         Main.logger.logDebug("showTwoFactorAuthPrompt() called");
 
         if (Platform.isFxApplicationThread()) {
-            return showTwoFactorAuthPromptDirectly(verificationCode, email, resendAction);
+            return showTwoFactorAuthPromptDirectly(provider, email);
         }
 
         try {
             return Boolean.TRUE.equals(executeOnFxThread(() -> 
-                showTwoFactorAuthPromptDirectly(verificationCode, email, resendAction)));
+                showTwoFactorAuthPromptDirectly(provider, email)));
         } catch (Exception e) {
             Main.logger.logError("Unexpected error in showTwoFactorAuthPrompt: " + e.getMessage());
             Main.logger.logDebug("Exception: " + e.getMessage(), e);
@@ -321,13 +367,13 @@ public class SubGUIHandler {
     /**
      * Direct two-factor authentication prompt when on FX thread
      */
-    private boolean showTwoFactorAuthPromptDirectly(String verificationCode, String email, Runnable resendAction) {
+    private boolean showTwoFactorAuthPromptDirectly(SecondFactorProvider provider, String email) {
         try {
             Stage twoFactorAuthStage = createTwoFactorAuthStage();
             TwoFactorAuthGUI controller = getTwoFactorAuthController(twoFactorAuthStage);
 
-            // Initialize the controller with the verification code and email
-            controller.initialize(verificationCode, email, resendAction);
+            // Initialize the controller with the provider and email
+            controller.initialize(provider, email);
 
             Main.logger.logDebug("TwoFactorAuth stage showing");
             twoFactorAuthStage.showAndWait();
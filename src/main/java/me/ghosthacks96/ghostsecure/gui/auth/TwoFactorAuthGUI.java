@@ -1,5 +1,6 @@
 package me.ghosthacks96.ghostsecure.gui.auth;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -7,6 +8,9 @@ import javafx.scene.control.TextField;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.auth.SecondFactorProvider;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for the two-factor authentication screen
@@ -16,6 +20,9 @@ public class TwoFactorAuthGUI {
     @FXML
     public ImageView appIcon;
     
+    @FXML
+    private Label instructionLabel;
+
     @FXML
     private TextField codeField;
     
@@ -29,20 +36,21 @@ public class TwoFactorAuthGUI {
     private Label errorLabel;
     
     private boolean verificationSuccessful = false;
-    private String expectedCode;
+    private SecondFactorProvider provider;
     private String userEmail;
-    private Runnable resendCodeAction;
     
     /**
-     * Initialize the controller with the expected verification code and user email
-     * @param verificationCode The code that the user should enter
+     * Initialize the controller with the second factor to verify and the user's email
+     * @param provider The provider that checks the entered code; its challenge must already be started
      * @param email The user's email address
-     * @param resendAction A runnable that will be executed when the resend button is clicked
      */
-    public void initialize(String verificationCode, String email, Runnable resendAction) {
-        this.expectedCode = verificationCode;
+    public void initialize(SecondFactorProvider provider, String email) {
+        this.provider = provider;
         this.userEmail = email;
-        this.resendCodeAction = resendAction;
+
+        instructionLabel.setText(provider.getInstructions());
+        resendButton.setVisible(provider.supportsResend());
+        resendButton.setManaged(provider.supportsResend());
         
         // Make sure error label is initially hidden
         errorLabel.setVisible(false);
@@ -63,14 +71,14 @@ public class TwoFactorAuthGUI {
             return;
         }
         
-        if (!enteredCode.equals(expectedCode)) {
+        if (!provider.verify(enteredCode)) {
             errorLabel.setText("Invalid verification code. Please try again.");
             return;
         }
         
         // Code is valid
         verificationSuccessful = true;
-        Main.logger.logInfo("Two-factor authentication successful for user: " + userEmail);
+        Main.logger.logInfo("Two-factor authentication (" + provider.getName() + ") successful for user: " + userEmail);
         closeWindow();
     }
     
@@ -79,11 +87,23 @@ public class TwoFactorAuthGUI {
      */
     @FXML
     private void onResendButtonClick() {
-        if (resendCodeAction != null) {
-            resendCodeAction.run();
-            errorLabel.setVisible(true);
-            errorLabel.setText("A new verification code has been sent to your email.");
+        if (provider == null || !provider.supportsResend()) {
+            return;
         }
+
+        resendButton.setDisable(true);
+        errorLabel.setVisible(true);
+        errorLabel.setText("Sending a new verification code...");
+
+        // Sending can take a while, so keep the window responsive
+        CompletableFuture.supplyAsync(provider::startChallenge).whenComplete((sent, e) -> Platform.runLater(() -> {
+            resendButton.setDisable(false);
+            if (e == null && Boolean.TRUE.equals(sent)) {
+                errorLabel.setText("A new verification code has been sent to your email.");
+            } else {
+                errorLabel.setText("Failed to send a new verification code. Please try again.");
+            }
+        }));
     }
     
     /**
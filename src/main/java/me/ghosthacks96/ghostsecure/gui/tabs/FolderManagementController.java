@@ -15,6 +15,8 @@ import javafx.stage.Stage;
 import me.ghosthacks96.ghostsecure.gui.extras.LockedItemCard;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedFolder;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedItem;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
+import me.ghosthacks96.ghostsecure.utils.services.extras.FolderManager;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -25,6 +27,7 @@ import java.util.stream.Collectors;
 
 import static me.ghosthacks96.ghostsecure.Main.folderStorage;
 import static me.ghosthacks96.ghostsecure.Main.logger;
+import static me.ghosthacks96.ghostsecure.Main.sgh;
 
 public class FolderManagementController {
 
@@ -41,18 +44,39 @@ public class FolderManagementController {
     @FXML
     private Button switchFolderLock;
     @FXML
+    private Button switchLockMode;
+    @FXML
     private Button selectAllButton;
     @FXML
     private Button deselectAllButton;
 
     private static final ObservableList<LockedItem> folderItems = FXCollections.observableArrayList();
 
+    // Only the most recently loaded controller listens; tabs are re-created on every navigation
+    private static StorageManager.Subscription storageSubscription;
+    private long renderedVersion = -1;
+
     @FXML
     private void initialize() {
         setupCardContainer();
+        subscribeToStorageChanges();
         refreshCardDisplay();
     }
 
+    /**
+     * Refresh the cards when folderStorage is changed from elsewhere (e.g. a settings import)
+     */
+    private void subscribeToStorageChanges() {
+        if (storageSubscription != null) {
+            storageSubscription.cancel();
+        }
+        storageSubscription = folderStorage.subscribe(changes -> {
+            if (folderStorage.getVersion() != renderedVersion) {
+                refreshCardDisplay();
+            }
+        }, Platform::runLater);
+    }
+
     private void setupCardContainer() {
         cardContainer.setSpacing(8);
         cardContainer.setPadding(new Insets(10));
@@ -65,6 +89,7 @@ public class FolderManagementController {
     public void refreshCardDisplay() {
         // This would be called from your main refresh method
         logger.logInfo("Refreshing card display.");
+        renderedVersion = folderStorage.getVersion();
 
         List<LockedItem> folders = new ArrayList<>();
         Map<String, Object> allData = folderStorage.getAllData();
@@ -134,13 +159,13 @@ public class FolderManagementController {
         folderData.put("name", selectedDirectory.getName());
         folderData.put("locked", false);
         folderData.put("type", "FOLDER");
+        folderData.put(FolderManager.LOCK_MODE_KEY, FolderManager.getDefaultLockMode());
 
         // Generate a new key for the folder
         String newKey = "folder_" + System.currentTimeMillis();
 
         // Add folder to storage
         folderStorage.put(newKey, folderData);
-        folderStorage.saveData();
 
         refreshCardDisplay();
         updateCardDisplay();
@@ -182,7 +207,6 @@ public class FolderManagementController {
             }
         }
 
-        folderStorage.saveData();
         refreshCardDisplay();
         updateCardDisplay();
     }
@@ -233,7 +257,59 @@ public class FolderManagementController {
             }
         }
 
-        folderStorage.saveData();
+        updateCardDisplay();
+    }
+
+    @FXML
+    private void swapLockMode() {
+        logger.logInfo("Toggling lock mode for selected folders.");
+
+        List<LockedItem> selectedFolders = folderItems.stream()
+                .filter(LockedItem::isSelected)
+                .collect(Collectors.toList());
+
+        if (selectedFolders.isEmpty()) {
+            logger.logWarning("No folders selected for toggling lock mode.");
+            return;
+        }
+
+        // Locked folders are not unlocked for the switch, so what is already locked stays locked the old way
+        if (!sgh.showConfirmation("Change Lock Mode",
+                "Both modes lock every file and folder in the folder. Per-file mode locks files and folders "
+                        + "created later once the folder watcher reports them; inherit mode has Windows lock them "
+                        + "the moment they are created.\n\nLocked folders are locked again in the new mode "
+                        + "without being unlocked first. Contents that are already locked keep their current "
+                        + "lock until the folder is unlocked. Switch the lock mode of the selected folders?")) {
+            logger.logInfo("Lock mode change cancelled.");
+            return;
+        }
+
+        Map<String, Object> allData = folderStorage.getAllData();
+        for (String key : allData.keySet()) {
+            if (allData.get(key) instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> itemData = (Map<String, Object>) allData.get(key);
+                if ("FOLDER".equals(itemData.get("type"))) {
+                    String path = (String) itemData.get("path");
+
+                    for (LockedItem selectedFolder : selectedFolders) {
+                        if (selectedFolder.getPath().equals(path)) {
+                            // Both lock every entry, inherit also has new entries locked on creation
+                            String newMode = FolderManager.INHERIT_LOCK_MODE.equals(FolderManager.getLockMode(itemData))
+                                    ? FolderManager.PER_FILE_LOCK_MODE
+                                    : FolderManager.INHERIT_LOCK_MODE;
+                            itemData.put(FolderManager.LOCK_MODE_KEY, newMode);
+                            folderStorage.put(key, itemData);
+
+                            selectedFolder.setSelected(false);
+                            logger.logInfo("Lock mode for folder " + selectedFolder.getName() + " set to " + newMode);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
         updateCardDisplay();
     }
 
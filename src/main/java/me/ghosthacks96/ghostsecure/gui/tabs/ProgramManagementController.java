@@ -14,6 +14,7 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import me.ghosthacks96.ghostsecure.gui.extras.LockedItemCard;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedItem;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedProgram;
 import me.ghosthacks96.ghostsecure.gui.extras.FileSelectionHelper;
 
@@ -50,12 +51,31 @@ public class ProgramManagementController {
 
     private static final ObservableList<LockedItem> programItems = FXCollections.observableArrayList();
 
+    // Only the most recently loaded controller listens; tabs are re-created on every navigation
+    private static StorageManager.Subscription storageSubscription;
+    private long renderedVersion = -1;
+
     @FXML
     private void initialize() {
         setupCardContainer();
+        subscribeToStorageChanges();
         refreshCardDisplay();
     }
 
+    /**
+     * Refresh the cards when programStorage is changed from elsewhere (e.g. a settings import)
+     */
+    private void subscribeToStorageChanges() {
+        if (storageSubscription != null) {
+            storageSubscription.cancel();
+        }
+        storageSubscription = programStorage.subscribe(changes -> {
+            if (programStorage.getVersion() != renderedVersion) {
+                refreshCardDisplay();
+            }
+        }, Platform::runLater);
+    }
+
     private void setupCardContainer() {
         cardContainer.setSpacing(8);
         cardContainer.setPadding(new Insets(10));
@@ -67,6 +87,7 @@ public class ProgramManagementController {
 
     public void refreshCardDisplay() {
         logger.logInfo("Refreshing card display.");
+        renderedVersion = programStorage.getVersion();
 
         List<LockedItem> programs = new ArrayList<>();
         Map<String, Object> allData = programStorage.getAllData();
@@ -185,7 +206,6 @@ public class ProgramManagementController {
         }
 
         if (changesWereMade) {
-            programStorage.saveData();
             refreshCardDisplay();
             updateCardDisplay();
         }
@@ -264,7 +284,6 @@ public class ProgramManagementController {
                 addedCount, skippedCount, processedInfo.getFailedFiles().size()));
 
         if (changesWereMade) {
-            programStorage.saveData();
             refreshCardDisplay();
             updateCardDisplay();
         }
@@ -305,7 +324,6 @@ public class ProgramManagementController {
             }
         }
 
-        programStorage.saveData();
         refreshCardDisplay();
         updateCardDisplay();
     }
@@ -356,7 +374,6 @@ public class ProgramManagementController {
             }
         }
 
-        programStorage.saveData();
         updateCardDisplay();
     }
 
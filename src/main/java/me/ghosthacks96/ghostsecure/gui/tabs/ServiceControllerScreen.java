@@ -1,8 +1,13 @@
 package me.ghosthacks96.ghostsecure.gui.tabs;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
 import me.ghosthacks96.ghostsecure.Main;
 import me.ghosthacks96.ghostsecure.gui.HomeGUI;
 import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
@@ -15,6 +20,9 @@ public class ServiceControllerScreen {
     @FXML
     private Button startServiceButton;
     @FXML private Button stopServiceButton;
+    @FXML private Label checkIntervalLabel;
+
+    private Timeline intervalRefresh;
 
     // ===============================
     // SERVICE CONTROL METHODS
@@ -24,6 +32,7 @@ public class ServiceControllerScreen {
     public void initialize() {
         logger.logInfo("Initializing ServiceControllerScreen.");
         updateServiceStatus();
+        startIntervalRefresh();
         logger.logInfo("ServiceControllerScreen initialized.");
     }
 
@@ -56,6 +65,33 @@ public class ServiceControllerScreen {
     }
 
 
+    /**
+     * Keep the program check interval label in sync with the adaptive scheduler while the screen is shown.
+     * A new controller is loaded on every visit, so the refresh stops once the label leaves its scene.
+     */
+    private void startIntervalRefresh() {
+        updateCheckInterval();
+        intervalRefresh = new Timeline(new KeyFrame(Duration.millis(500), event -> updateCheckInterval()));
+        intervalRefresh.setCycleCount(Animation.INDEFINITE);
+        checkIntervalLabel.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene == null) {
+                intervalRefresh.stop();
+            } else {
+                intervalRefresh.play();
+            }
+        });
+        if (checkIntervalLabel.getScene() != null) {
+            intervalRefresh.play();
+        }
+    }
+
+    private void updateCheckInterval() {
+        long intervalMs = ServiceController.getProgramCheckIntervalMs();
+        checkIntervalLabel.setText(intervalMs < 0
+                ? "Program check interval: --"
+                : "Program check interval: " + intervalMs + " ms");
+    }
+
     private void setServiceRunningUI() {
         startServiceButton.setDisable(true);
         stopServiceButton.setDisable(false);
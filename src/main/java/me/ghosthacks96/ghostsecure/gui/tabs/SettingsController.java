@@ -15,6 +15,7 @@ import javafx.scene.control.TextField;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.auth.TotpSecondFactor;
 import me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils;
 
 import java.io.File;
@@ -36,6 +37,7 @@ public class SettingsController {
     private static final String STATIC_BACKUP_PASSWORD = "ThisIsBuLLShit";
     private static final int MIN_PASSWORD_LENGTH = 4;
     public CheckBox twoFactorAuthCheckBox;
+    @FXML private Button authenticatorButton;
     // UI Components - Settings
     @FXML private PasswordField currentPasswordField;
     @FXML private PasswordField newPasswordField;
@@ -60,6 +62,7 @@ public class SettingsController {
     public void initialize() {
         initializeDebugMode();
         initializeAutoStart();
+        updateAuthenticatorButton();
         if(Main.use2FA){
             Main.use2FA = false;
             Main.logger.logInfo("Two-Factor Authentication disabled.");
@@ -621,6 +624,47 @@ public class SettingsController {
 
     }
 
+    /**
+     * Set up an authenticator app for offline codes, or remove it and fall back to email codes
+     */
+    @FXML
+    public void toggleAuthenticatorApp(ActionEvent actionEvent) {
+        if (TotpSecondFactor.isProvisioned()) {
+            if (sgh.showConfirmation("Remove Authenticator App",
+                    "Two-factor codes will be sent by email again. Continue?")) {
+                TotpSecondFactor.deprovision();
+            }
+            updateAuthenticatorButton();
+            return;
+        }
+
+        String email = accountStorage.get("email", "");
+        String secret = TotpSecondFactor.generateSecret();
+        String setupText = "Key: " + secret + "\n\n" + TotpSecondFactor.getProvisioningUri(secret, email);
+
+        if (!sgh.showCopyableText("Set Up Authenticator App",
+                "Add this key to your authenticator app, then press OK and enter the code it shows.", setupText)) {
+            return;
+        }
+
+        // Only store the secret once the app has produced a matching code
+        TotpSecondFactor pending = new TotpSecondFactor(secret, null, 1);
+        if (sgh.showTwoFactorAuthPrompt(pending, email)) {
+            TotpSecondFactor.provision(secret);
+            sgh.showInfo("Authenticator App", "Your authenticator app is now used for two-factor authentication.");
+        } else {
+            sgh.showWarning("Authenticator App", "The authenticator app was not set up.");
+        }
+        updateAuthenticatorButton();
+    }
+
+    private void updateAuthenticatorButton() {
+        if (authenticatorButton != null) {
+            authenticatorButton.setText(TotpSecondFactor.isProvisioned()
+                    ? "REMOVE AUTHENTICATOR APP" : "SET UP AUTHENTICATOR APP");
+        }
+    }
+
     // ===============================
     // INNER CLASSES
     // ===============================
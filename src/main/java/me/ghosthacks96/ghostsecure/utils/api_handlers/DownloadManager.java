@@ -0,0 +1,397 @@
+package me.ghosthacks96.ghostsecure.utils.api_handlers;
+
+import me.ghosthacks96.ghostsecure.Main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads a file into place without ever exposing a partial or unverified copy.
+ *
+ * Data is streamed into a ".part" file next to the target. If the transfer is interrupted, the next
+ * attempt (or the next download of the same file) asks the server for the remaining bytes with a
+ * Range request. A small ".part.info" file records which digest and ETag the partial data belongs
+ * to, so leftovers of a different version are never resumed. Partial data is only resumed when both
+ * are known: the ETag must be a strong validator, sent as If-Range so a changed file is served in full,
+ * and the digest catches anything spliced regardless. Otherwise every attempt starts from byte 0.
+ * A response that sends no data for 30 seconds is closed and the attempt retried.
+ * The SHA-256 digest is computed while streaming and checked before the file is atomically moved
+ * over the target.
+ */
+public class DownloadManager {
+
+    private static final String PART_EXTENSION = ".part";
+    private static final String INFO_EXTENSION = ".part.info";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_RETRY_DELAY_MS = 500;
+    private static final long MAX_RETRY_DELAY_MS = 8000;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    // Covers only the response headers; the body is guarded by the read timeout
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final long READ_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long WATCHDOG_INTERVAL_MS = 1000;
+
+    // Closes response bodies that stopped sending, since a blocked read has no timeout of its own
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DownloadWatchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Receives download progress, called from the download thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param downloadedBytes bytes of the file on disk so far, including resumed data
+         * @param totalBytes size of the file, or -1 if the server did not say
+         * @param bytesPerSecond average throughput of the current attempt
+         */
+        void onProgress(long downloadedBytes, long totalBytes, double bytesPerSecond);
+    }
+
+    private final GhostApiClient apiClient;
+
+    public DownloadManager(GhostApiClient apiClient) {
+        this.apiClient = apiClient;
+    }
+
+    /**
+     * Download a file, resuming any earlier partial download of the same content.
+     *
+     * @param source where to download from
+     * @param target where the verified file is moved
+     * @param expectedSha256 hex SHA-256 of the file, or null to skip verification
+     * @param listener progress callback, may be null
+     * @return completes with the target once it is in place; exceptionally if all attempts failed or the digest does not match
+     */
+    public CompletableFuture<Path> download(URI source, Path target, String expectedSha256, ProgressListener listener) {
+        return attempt(source, target, expectedSha256, listener, 1);
+    }
+
+    private CompletableFuture<Path> attempt(URI source, Path target, String expectedSha256, ProgressListener listener, int attempt) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return transfer(source, target, expectedSha256, listener);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }).handle((path, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(path);
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof ChecksumMismatchException || attempt >= MAX_ATTEMPTS) {
+                return CompletableFuture.<Path>failedFuture(cause);
+            }
+
+            long bound = Math.min(MAX_RETRY_DELAY_MS, BASE_RETRY_DELAY_MS << (attempt - 1));
+            long delayMs = ThreadLocalRandom.current().nextLong(bound + 1);
+            Main.logger.logWarning("Download attempt " + attempt + " of " + MAX_ATTEMPTS + " failed (" + cause
+                    + "), resuming in " + delayMs + " ms");
+            return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attempt(source, target, expectedSha256, listener, attempt + 1));
+        }).thenCompose(future -> future);
+    }
+
+    private Path transfer(URI source, Path target, String expectedSha256, ProgressListener listener) throws IOException {
+        Path partPath = target.resolveSibling(target.getFileName() + PART_EXTENSION);
+        Path infoPath = target.resolveSibling(target.getFileName() + INFO_EXTENSION);
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        String digestKey = expectedSha256 != null ? expectedSha256.toLowerCase() : "";
+        PartInfo info = PartInfo.read(infoPath);
+        if (info == null || !info.digest.equals(digestKey)) {
+            // No partial data, or partial data of different content
+            Files.deleteIfExists(partPath);
+            info = new PartInfo(digestKey, "");
+            info.write(infoPath);
+        }
+
+        MessageDigest digest = newSha256();
+        try (FileChannel channel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long offset = hashExisting(channel, digest);
+            if (offset > 0 && !canResume(info)) {
+                // Nothing ties the bytes on disk to the file the server has now
+                Main.logger.logDebug("Partial download has no digest or strong ETag, restarting");
+                channel.truncate(0);
+                digest.reset();
+                offset = 0;
+            }
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(source).timeout(RESPONSE_TIMEOUT).GET();
+            if (offset > 0) {
+                request.header("Range", "bytes=" + offset + "-");
+                request.header("If-Range", info.etag);
+                Main.logger.logInfo("Resuming download of " + target.getFileName() + " at byte " + offset);
+            }
+
+            HttpResponse<InputStream> response = apiClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream()).join();
+            try (InputStream body = response.body()) {
+                long total = -1;
+                switch (response.statusCode()) {
+                    case 200 -> {
+                        // Full content: the server ignored the range or the partial data is stale
+                        if (offset > 0) {
+                            Main.logger.logDebug("Server sent the full file, restarting download");
+                            channel.truncate(0);
+                            digest.reset();
+                            offset = 0;
+                        }
+                        total = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+                    }
+                    case 206 -> {
+                        long[] range = parseContentRange(response.headers().firstValue("Content-Range").orElse(""));
+                        if (range[0] != offset) {
+                            throw new IOException("Server resumed at byte " + range[0] + " instead of " + offset);
+                        }
+                        total = range[1];
+                    }
+                    case 416 -> {
+                        // Nothing left to send: the partial file is already complete if its size matches
+                        long[] range = parseContentRange(response.headers().firstValue("Content-Range").orElse(""));
+                        if (range[1] != offset) {
+                            channel.truncate(0);
+                            throw new IOException("Partial download is larger than the file, restarting");
+                        }
+                        total = offset;
+                    }
+                    default -> throw new IOException("Download failed with HTTP " + response.statusCode());
+                }
+
+                String etag = response.headers().firstValue("ETag").orElse("");
+                if (!etag.equals(info.etag)) {
+                    info = new PartInfo(digestKey, etag);
+                    info.write(infoPath);
+                }
+
+                if (response.statusCode() != 416) {
+                    offset = stream(body, channel, digest, offset, total, listener);
+                }
+                if (total >= 0 && offset != total) {
+                    throw new IOException("Download ended at byte " + offset + " of " + total);
+                }
+            }
+            channel.force(true);
+        }
+
+        verify(digest, expectedSha256, partPath, infoPath);
+        moveIntoPlace(partPath, target);
+        Files.deleteIfExists(infoPath);
+        Main.logger.logInfo("Downloaded " + target.getFileName() + " (" + Files.size(target) + " bytes)");
+        return target;
+    }
+
+    /**
+     * Partial data may only be resumed if the file it belongs to is pinned down by a published digest
+     * and a strong ETag. Weak ETags are not allowed in If-Range.
+     */
+    private static boolean canResume(PartInfo info) {
+        return !info.digest.isEmpty() && !info.etag.isEmpty() && !info.etag.startsWith("W/");
+    }
+
+    private long stream(InputStream body, FileChannel channel, MessageDigest digest, long offset,
+                        long total, ProgressListener listener) throws IOException {
+        channel.position(offset);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long start = System.nanoTime();
+        long lastReport = start;
+        long received = 0;
+
+        AtomicLong lastRead = new AtomicLong(start);
+        AtomicBoolean stalled = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.scheduleWithFixedDelay(() -> {
+            if (System.nanoTime() - lastRead.get() >= READ_TIMEOUT_NANOS && stalled.compareAndSet(false, true)) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    Main.logger.logDebug("Failed to close stalled download: " + e.getMessage());
+                }
+            }
+        }, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        try {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                lastRead.set(System.nanoTime());
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                received += read;
+
+                long now = System.nanoTime();
+                if (listener != null && now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    listener.onProgress(offset + received, total, throughput(received, now - start));
+                }
+            }
+        } catch (IOException e) {
+            if (!stalled.get()) {
+                throw e;
+            }
+        } finally {
+            watchdog.cancel(false);
+        }
+        if (stalled.get()) {
+            // The read failed or ended because the watchdog closed the body; what was received is kept for the next attempt
+            throw new IOException("No data received for " + TimeUnit.NANOSECONDS.toSeconds(READ_TIMEOUT_NANOS)
+                    + " seconds at byte " + (offset + received));
+        }
+
+        if (listener != null) {
+            listener.onProgress(offset + received, total, throughput(received, System.nanoTime() - start));
+        }
+        return offset + received;
+    }
+
+    private static double throughput(long bytes, long elapsedNanos) {
+        return elapsedNanos > 0 ? bytes * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    /**
+     * Feed the bytes already on disk into the digest, so it covers the whole file after resuming.
+     *
+     * @return the number of bytes on disk
+     */
+    private static long hashExisting(FileChannel channel, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            position += read;
+        }
+        return position;
+    }
+
+    private static void verify(MessageDigest digest, String expectedSha256, Path partPath, Path infoPath) throws IOException {
+        byte[] actual = digest.digest();
+        if (expectedSha256 == null) {
+            Main.logger.logWarning("No checksum published, download not verified (SHA-256 " + HexFormat.of().formatHex(actual) + ")");
+            return;
+        }
+
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(expectedSha256.trim());
+        } catch (IllegalArgumentException e) {
+            throw new ChecksumMismatchException("Published checksum is not a hex SHA-256 digest: " + expectedSha256);
+        }
+
+        if (!MessageDigest.isEqual(expected, actual)) {
+            // Corrupt or tampered data is never resumed
+            Files.deleteIfExists(partPath);
+            Files.deleteIfExists(infoPath);
+            throw new ChecksumMismatchException("Checksum mismatch: expected " + expectedSha256
+                    + ", got " + HexFormat.of().formatHex(actual));
+        }
+    }
+
+    private static void moveIntoPlace(Path partPath, Path target) throws IOException {
+        try {
+            Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Parse "bytes start-end/total" or "bytes * /total".
+     *
+     * @return {start, total}, with -1 for parts the header leaves out
+     */
+    private static long[] parseContentRange(String header) throws IOException {
+        try {
+            String spec = header.trim();
+            if (!spec.startsWith("bytes ")) {
+                throw new IOException("Invalid Content-Range: " + header);
+            }
+            spec = spec.substring(6).trim();
+            int slash = spec.indexOf('/');
+            String range = spec.substring(0, slash).trim();
+            String total = spec.substring(slash + 1).trim();
+            long start = range.equals("*") ? -1 : Long.parseLong(range.substring(0, range.indexOf('-')));
+            return new long[]{start, total.equals("*") ? -1 : Long.parseLong(total)};
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid Content-Range: " + header, e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * What the partial data on disk belongs to.
+     */
+    private static class PartInfo {
+        private final String digest;
+        private final String etag;
+
+        private PartInfo(String digest, String etag) {
+            this.digest = digest;
+            this.etag = etag;
+        }
+
+        private static PartInfo read(Path path) {
+            try {
+                List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                return new PartInfo(lines.isEmpty() ? "" : lines.get(0), lines.size() > 1 ? lines.get(1) : "");
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private void write(Path path) throws IOException {
+            Files.writeString(path, digest + "\n" + etag + "\n", StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The downloaded data does not match the published digest. Not retried.
+     */
+    public static class ChecksumMismatchException extends IOException {
+        public ChecksumMismatchException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package me.ghosthacks96.ghostsecure.utils.api_handlers;
+
+import com.google.gson.JsonObject;
+import me.ghosthacks96.ghostsecure.Main;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client for the GhostAPI endpoint, shared by every API handler.
+ *
+ * One HttpClient keeps connections alive across calls and uses HTTP/2 where the server offers it.
+ * Every call is asynchronous and bounded by a deadline covering all of its attempts. Retries back
+ * off exponentially with full jitter and are scheduled on a delayed executor, so no thread sleeps
+ * while waiting.
+ */
+public final class GhostApiClient {
+
+    public static final String DEFAULT_BASE_URL = "https://ghosthacks96.me/site/GhostAPI/";
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(30);
+
+    private static final String API_PATH = "API.php";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(15);
+
+    private static volatile GhostApiClient shared;
+
+    private final URI baseUri;
+    private final HttpClient httpClient;
+
+    /**
+     * @param baseUrl the API base, e.g. a local stub server in tests; API paths are resolved against it
+     */
+    public GhostApiClient(String baseUrl) {
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Get the process-wide client for the GhostAPI. The URL is not read from the settings, which the
+     * user can edit; it only changes through {@link #setShared(GhostApiClient)}.
+     *
+     * @return the shared client
+     */
+    public static GhostApiClient getShared() {
+        GhostApiClient client = shared;
+        if (client == null) {
+            synchronized (GhostApiClient.class) {
+                client = shared;
+                if (client == null) {
+                    client = new GhostApiClient(DEFAULT_BASE_URL);
+                    shared = client;
+                    Main.logger.logDebug("API client created for: " + client.baseUri);
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Replace the shared client, e.g. to point every handler at a stub server.
+     *
+     * @param client the new shared client
+     */
+    public static void setShared(GhostApiClient client) {
+        shared = client;
+    }
+
+    /**
+     * POST a JSON payload to the API endpoint once.
+     *
+     * @param payload the request body
+     * @param deadline how long the call may take in total
+     * @return the response; completes exceptionally on network errors and timeouts
+     */
+    public CompletableFuture<ApiResponse> post(JsonObject payload, Duration deadline) {
+        return post(payload, RetryPolicy.NONE, deadline);
+    }
+
+    /**
+     * POST a JSON payload to the API endpoint, retrying network errors and retryable status codes.
+     *
+     * @param payload the request body
+     * @param retryPolicy how often and how far apart to retry
+     * @param deadline how long the call may take in total, including backoff between attempts
+     * @return the last response; completes exceptionally if the last attempt failed with a network error or timeout
+     */
+    public CompletableFuture<ApiResponse> post(JsonObject payload, RetryPolicy retryPolicy, Duration deadline) {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        String body = payload.toString();
+        return attempt(body, retryPolicy, 1, deadlineNanos);
+    }
+
+    /**
+     * Send an arbitrary request on the shared connection pool, e.g. a download from another host.
+     *
+     * @param request the request; a request without a timeout gets the default deadline
+     * @param bodyHandler how the response body is consumed
+     * @return the response
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (request.timeout().isEmpty()) {
+            request = HttpRequest.newBuilder(request, (name, value) -> true).timeout(DEFAULT_DEADLINE).build();
+        }
+        return httpClient.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * @param path a path relative to the base URL
+     * @return the absolute URI
+     */
+    public URI resolve(String path) {
+        return baseUri.resolve(path);
+    }
+
+    private CompletableFuture<ApiResponse> attempt(String body, RetryPolicy retryPolicy, int attempt, long deadlineNanos) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return CompletableFuture.failedFuture(new HttpTimeoutException("API call deadline exceeded"));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(resolve(API_PATH))
+                .timeout(Duration.ofNanos(remainingNanos))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("User-Agent", "GhostSecure/" + Main.VERSION)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .handle((response, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    boolean retryable = cause != null ? cause instanceof IOException : isRetryableStatus(response.statusCode());
+                    if (!retryable || attempt >= retryPolicy.maxAttempts) {
+                        return toResult(response, cause);
+                    }
+
+                    long delayMs = retryPolicy.backoffMillis(attempt);
+                    if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) >= deadlineNanos) {
+                        Main.logger.logWarning("API call attempt " + attempt + " failed, no time left to retry");
+                        return toResult(response, cause);
+                    }
+
+                    Main.logger.logWarning("API call attempt " + attempt + " of " + retryPolicy.maxAttempts + " failed ("
+                            + (cause != null ? cause.toString() : "HTTP " + response.statusCode())
+                            + "), retrying in " + delayMs + " ms");
+                    return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> attempt(body, retryPolicy, attempt + 1, deadlineNanos));
+                })
+                .thenCompose(future -> future);
+    }
+
+    private static CompletableFuture<ApiResponse> toResult(HttpResponse<String> response, Throwable error) {
+        if (error != null) {
+            return CompletableFuture.failedFuture(error);
+        }
+        return CompletableFuture.completedFuture(new ApiResponse(response.statusCode(), response.body().trim()));
+    }
+
+    private static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * How a call is retried. Delays grow exponentially from the base delay up to the maximum,
+     * and each actual delay is drawn uniformly below that bound.
+     */
+    public static final class RetryPolicy {
+        public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+        public static final RetryPolicy DEFAULT = new RetryPolicy(3, Duration.ofMillis(500), Duration.ofSeconds(5));
+
+        private final int maxAttempts;
+        private final long baseDelayMs;
+        private final long maxDelayMs;
+
+        /**
+         * @param maxAttempts total attempts including the first
+         * @param baseDelay backoff bound after the first attempt
+         * @param maxDelay upper bound for any backoff
+         */
+        public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("At least one attempt is required");
+            }
+            this.maxAttempts = maxAttempts;
+            this.baseDelayMs = baseDelay.toMillis();
+            this.maxDelayMs = maxDelay.toMillis();
+        }
+
+        long backoffMillis(int attempt) {
+            long bound = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 30));
+            return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+    }
+
+    /**
+     * Status code and body of an API response.
+     */
+    public static final class ApiResponse {
+        private final int statusCode;
+        private final String body;
+
+        ApiResponse(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return statusCode == 200;
+        }
+    }
+}
@@ -6,14 +6,14 @@ import me.ghosthacks96.ghostsecure.Main;
 import me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils;
 import me.ghosthacks96.ghostsecure.utils.file_handlers.Logging;
 import me.ghosthacks96.ghostsecure.gui.SubGUIHandler;
+import me.ghosthacks96.ghostsecure.utils.auth.SecondFactorProvider;
 import me.ghosthacks96.ghostsecure.utils.auth.TwoFactorAuthUtil;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
 
 /**
  * Handles password recovery functionality for GhostSecure
@@ -22,17 +22,17 @@ public class RecoveryHandler {
 
     // Configuration constants
     private static final String RECOVERY_FILE = Main.APP_DATA_PATH + "rk.txt";
-    private static final String RECOVERY_API_URL = "https://ghosthacks96.me/site/GhostAPI/API.php";
-    private static final int CONNECT_TIMEOUT_MS = 15000;
-    private static final int REQUEST_TIMEOUT_MS = 30000;
+    private static final Duration VALIDATION_DEADLINE = Duration.ofSeconds(45);
 
     // Dependencies
     private final Logging logger;
     private final SubGUIHandler sgh;
+    private final GhostApiClient apiClient;
 
     public RecoveryHandler() {
         this.logger = Main.logger;
         this.sgh = Main.sgh;
+        this.apiClient = GhostApiClient.getShared();
     }
 
     /**
@@ -131,25 +131,17 @@ public class RecoveryHandler {
                 return false;
             }
 
-            // Send verification code
-            String verificationCode = TwoFactorAuthUtil.sendVerificationCode(email);
-            if (verificationCode == null) {
+            SecondFactorProvider provider = TwoFactorAuthUtil.getSecondFactorProvider(email);
+
+            // Send the verification code if the provider needs one
+            if (!provider.startChallenge()) {
                 logger.logError("Failed to send verification code.");
                 sgh.showError("Authentication Error", "Failed to send verification code. Please check your email settings and try again.");
                 return false;
             }
 
-            // Create a resend action
-            Runnable resendAction = () -> {
-                String newCode = TwoFactorAuthUtil.sendVerificationCode(email);
-                if (newCode != null) {
-                    // Update the expected code in the controller
-                    // This is handled by the TwoFactorAuthGUI class
-                }
-            };
-
             // Show 2FA prompt
-            boolean verified = sgh.showTwoFactorAuthPrompt(verificationCode, email, resendAction);
+            boolean verified = sgh.showTwoFactorAuthPrompt(provider, email);
 
             if (verified) {
                 logger.logInfo("Two-factor authentication successful for recovery.");
@@ -221,29 +213,25 @@ public class RecoveryHandler {
 
             return parseValidationResponse(response.getBody());
 
+        } catch (CompletionException e) {
+            handleAPIException(e.getCause() instanceof Exception cause ? cause : e);
+            return false;
         } catch (Exception e) {
             handleAPIException(e);
             return false;
         }
     }
 
-    private APIResponse sendRecoveryValidationRequest(String recoveryKey) throws Exception {
+    private APIResponse sendRecoveryValidationRequest(String recoveryKey) {
         JsonObject payload = createRecoveryPayload(recoveryKey);
-        String jsonData = payload.toString();
-
-        logger.logDebug("JSON payload: " + jsonData);
-
-        URL url = URI.create(RECOVERY_API_URL).toURL();
-        HttpURLConnection connection = createConnection(url);
+        logger.logDebug("JSON payload: " + payload);
 
-        sendRequestData(connection, jsonData);
+        GhostApiClient.ApiResponse response = apiClient
+                .post(payload, GhostApiClient.RetryPolicy.DEFAULT, VALIDATION_DEADLINE)
+                .join();
+        logger.logInfo("API Response Status: " + response.getStatusCode());
 
-        int responseCode = connection.getResponseCode();
-        logger.logInfo("API Response Status: " + responseCode);
-
-        String responseBody = readResponseBody(connection, responseCode);
-
-        return new APIResponse(responseCode, responseBody);
+        return new APIResponse(response.getStatusCode(), response.getBody());
     }
 
     private JsonObject createRecoveryPayload(String recoveryKey) {
@@ -253,44 +241,6 @@ public class RecoveryHandler {
         return payload;
     }
 
-    private HttpURLConnection createConnection(URL url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setRequestProperty("User-Agent", "GhostSecure/1.0");
-        connection.setDoOutput(true);
-        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-        connection.setReadTimeout(REQUEST_TIMEOUT_MS);
-        return connection;
-    }
-
-    private void sendRequestData(HttpURLConnection connection, String jsonData) throws IOException {
-        try (OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
-            writer.write(jsonData);
-            writer.flush();
-            logger.logDebug("Recovery validation POST payload sent: " + jsonData);
-        }
-    }
-
-    private String readResponseBody(HttpURLConnection connection, int responseCode) throws IOException {
-        InputStream inputStream = responseCode == 200 ?
-                connection.getInputStream() : connection.getErrorStream();
-
-        if (inputStream == null) {
-            return "";
-        }
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString().trim();
-        }
-    }
-
     private void handleAPIErrorResponse(APIResponse response) {
         int responseCode = response.getResponseCode();
         logger.logError("API request failed with status code: " + responseCode);
@@ -373,7 +323,7 @@ public class RecoveryHandler {
     @SuppressWarnings("All")
     private void handleAPIException(Exception e) {
         switch (e) {
-            case java.net.SocketTimeoutException socketTimeoutException -> {
+            case java.net.http.HttpTimeoutException timeoutException -> {
                 logger.logError("Request timed out: " + e.getMessage(), e);
                 sgh.showError("Network Error", "Request timed out. Please check your internet connection and try again.");
             }
@@ -1,54 +1,155 @@
 package me.ghosthacks96.ghostsecure.utils.api_handlers;
 
 import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
 
 /**
- * Handles application update functionality for GhostSecure
+ * Handles application update functionality for GhostSecure.
+ *
+ * The check runs in the background and never blocks startup. Its time and result are kept in the
+ * system settings, so within the check interval no request is made and the cached result is used.
+ * An available update is reported to the registered listeners instead of being installed directly.
  */
 public class Update {
 
     // Configuration constants
-    private static final String API_URL = "https://ghosthacks96.me/site/GhostAPI/API.php";
     private static final String UPDATER_DOWNLOAD_URL = "https://ghosthacks96.me/site/downloads/GhostUpdate.exe";
     private static final String UPDATER_PATH = System.getenv("APPDATA") + "\\ghosthacks96\\GhostUpdate\\GhostUpdate.exe";
     private static final String NO_UPDATE_RESPONSE = "<noupdate>";
-    private static final int CONNECTION_TIMEOUT_MS = 10000;
-    private static final int READ_TIMEOUT_MS = 10000;
+    private static final Duration CHECK_DEADLINE = Duration.ofSeconds(20);
+    private static final long DEFAULT_CHECK_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+
+    // Keys in the system settings
+    private static final String LAST_CHECK_KEY = "update_last_check";
+    private static final String LAST_CHECK_VERSION_KEY = "update_last_check_version";
+    private static final String LAST_RESULT_KEY = "update_last_result";
+    private static final String CHECK_INTERVAL_KEY = "update_check_interval_ms";
 
     // Application information
     private static String APP_NAME;
     private static String CURRENT_VERSION;
 
+    private final GhostApiClient apiClient;
+    private final StorageManager settings;
+    private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<>();
+
     public Update(String appName, String currentVersion) {
+        this(appName, currentVersion, GhostApiClient.getShared(), Main.systemConfigStorage);
+    }
+
+    /**
+     * @param appName the application name sent to the update API
+     * @param currentVersion the running version
+     * @param apiClient the client for the update API
+     * @param settings where the last check is cached, or null to always check
+     */
+    public Update(String appName, String currentVersion, GhostApiClient apiClient, StorageManager settings) {
         Main.logger.logDebug("Update constructor called with appName=" + appName + ", currentVersion=" + currentVersion);
         APP_NAME = appName;
         CURRENT_VERSION = currentVersion;
+        this.apiClient = apiClient;
+        this.settings = settings;
+    }
+
+    /**
+     * Receives update notifications.
+     */
+    @FunctionalInterface
+    public interface UpdateListener {
+        void onUpdateAvailable(UpdateResponse response);
+    }
+
+    /**
+     * Register a listener for available updates.
+     *
+     * @param listener the callback
+     * @param executor where the callback runs (e.g. Platform::runLater for UI code)
+     */
+    public void addUpdateListener(UpdateListener listener, Executor executor) {
+        if (listener == null || executor == null) {
+            throw new IllegalArgumentException("Listener and executor cannot be null");
+        }
+        listeners.add(new ListenerRegistration(listener, executor));
     }
 
     /**
-     * Checks for updates and launches updater if available
+     * Check for updates in the background. Uses the cached result if the last check is within the
+     * configured interval, and notifies the listeners if an update is available. Only answers of the
+     * update API are cached; after a failed check the next call asks again.
+     *
+     * @return the update information, or null if there is no update or the check failed; never completes exceptionally
+     */
+    public CompletableFuture<UpdateResponse> checkInBackground() {
+        UpdateResponse cached = getCachedResponse();
+        CompletableFuture<UpdateResponse> result;
+        if (cached != null || isCacheFresh()) {
+            Main.logger.logDebug("Using cached update check result: " + cached);
+            result = CompletableFuture.completedFuture(cached);
+        } else {
+            result = checkForUpdatesAsync().thenApply(response -> {
+                cacheResponse(response);
+                return response;
+            });
+        }
+
+        return result.handle((response, e) -> {
+            if (e != null) {
+                Main.logger.logWarning("Background update check failed: " + e.getMessage());
+                return null;
+            }
+            if (isUpdateAvailable(response)) {
+                notifyListeners(response);
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Checks for updates and launches updater if available. Blocks, prefer {@link #checkInBackground()}.
      * @return true if the update is available and updater was launched successfully, false otherwise
      */
     public boolean updateCheck() {
-        UpdateResponse response = checkForUpdates();
+        UpdateResponse response = checkInBackground().join();
         Main.logger.logDebug("Update checkForUpdates() response: " + response);
 
         if (!isUpdateAvailable(response)) {
             return false;
         }
+        return installUpdate(response);
+    }
 
+    /**
+     * Download the updater and start it. The caller exits the application once this returns true.
+     *
+     * @param response the update to install, it must publish the updater checksum
+     * @return true if the updater was launched, false if it could not be downloaded, verified or started
+     */
+    public boolean installUpdate(UpdateResponse response) {
         Main.logger.logDebug("Update available - preparing to launch updater");
-        updateUpdaterFile();
+        if (response == null || response.updater_sha256 == null || response.updater_sha256.isBlank()) {
+            // Without a published checksum nothing proves the updater is the one that was released
+            Main.logger.logError("No updater checksum published, not downloading or launching the updater");
+            return false;
+        }
+
+        // Never run an updater that was not just downloaded and verified
+        if (!updateUpdaterFile(response.updater_sha256)) {
+            Main.logger.logError("Updater could not be downloaded or verified, not launching it");
+            return false;
+        }
 
         if (launchUpdater()) {
             Main.logger.logDebug("Updater launched successfully, application will exit now");
@@ -60,37 +161,30 @@ public class Update {
     }
 
     /**
-     * Downloads and updates the updater executable
+     * Downloads and updates the updater executable. The existing updater is only replaced by a
+     * complete download matching the checksum; an interrupted download resumes on the next call.
+     *
+     * @param expectedSha256 hex SHA-256 of the updater published by the API, or null if none was published
+     * @return true if the updater was replaced
      */
-    public void updateUpdaterFile() {
+    public boolean updateUpdaterFile(String expectedSha256) {
         Main.logger.logDebug("updateUpdaterFile() called");
 
         try {
-            URL downloadUrl = URI.create(UPDATER_DOWNLOAD_URL).toURL();
-            Main.logger.logDebug("Downloading updater from: " + downloadUrl);
+            URI downloadUri = URI.create(UPDATER_DOWNLOAD_URL);
+            Main.logger.logDebug("Downloading updater from: " + downloadUri);
 
-            Path targetPath = Paths.get(UPDATER_PATH);
-            ensureParentDirectoryExists(targetPath);
-
-            downloadFile(downloadUrl, targetPath);
+            new DownloadManager(apiClient)
+                    .download(downloadUri, Paths.get(UPDATER_PATH), expectedSha256, new DownloadProgressLogger())
+                    .join();
 
             Main.logger.logDebug("Updater file downloaded and updated successfully at: " + UPDATER_PATH);
+            return true;
         } catch (Exception e) {
-            Main.logger.logError("Error updating updater file: " + e.getMessage());
-            Main.logger.logDebug("Exception: " + e);
-        }
-    }
-
-    private void ensureParentDirectoryExists(Path targetPath) throws IOException {
-        Path parentDir = targetPath.getParent();
-        if (parentDir != null && !Files.exists(parentDir)) {
-            Files.createDirectories(parentDir);
-        }
-    }
-
-    private void downloadFile(URL downloadUrl, Path targetPath) throws IOException {
-        try (InputStream in = downloadUrl.openStream()) {
-            Files.copy(in, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Main.logger.logError("Error updating updater file: " + cause.getMessage());
+            Main.logger.logDebug("Exception: " + cause);
+            return false;
         }
     }
 
@@ -99,53 +193,37 @@ public class Update {
      * @return UpdateResponse object or null if no update available or error occurred
      */
     public static UpdateResponse checkForUpdates() {
-        Main.logger.logDebug("checkForUpdates() called");
-        Main.logger.logDebug("Checking for updates...");
-
-        try {
-            UpdateRequest request = sendUpdateRequest();
-            if (!request.isSuccessful()) {
-                handleUpdateRequestError(request);
-                return null;
-            }
-
-            return parseUpdateResponse(request.getResponseBody());
-
-        } catch (Exception e) {
-            Main.logger.logError("Error checking for updates: " + e.getMessage(), e);
-            Main.logger.logDebug("Exception: " + e);
-            Main.logger.logException(e);
-            return null;
-        }
+        return new Update(APP_NAME, CURRENT_VERSION).checkForUpdatesAsync()
+                .exceptionally(e -> {
+                    Main.logger.logError("Error checking for updates: " + e.getMessage(), e);
+                    return null;
+                })
+                .join();
     }
 
-    private static UpdateRequest sendUpdateRequest() throws Exception {
-        URL url = URI.create(API_URL).toURL();
-        Main.logger.logDebug("API URL: " + API_URL);
+    /**
+     * Ask the update API for a newer version, bypassing the cache.
+     *
+     * @return the update information, or null if there is none; completes exceptionally on network and HTTP
+     *         errors and on responses that cannot be parsed, which are therefore never cached as "no update"
+     */
+    public CompletableFuture<UpdateResponse> checkForUpdatesAsync() {
+        Main.logger.logDebug("Checking for updates...");
 
-        HttpURLConnection connection = createUpdateConnection(url);
         JsonObject payload = createUpdatePayload();
+        Main.logger.logDebug("Update check POST payload sent: " + payload);
 
-        sendRequestPayload(connection, payload);
-
-        int responseCode = connection.getResponseCode();
-        Main.logger.logDebug("Update check response code: " + responseCode);
+        return apiClient.post(payload, CHECK_DEADLINE).thenApply(response -> {
+            UpdateRequest result = new UpdateRequest(response.getStatusCode(), response.getBody());
+            Main.logger.logDebug("Update check response code: " + result.getResponseCode());
+            Main.logger.logDebug("Update check response body: " + result.getResponseBody());
 
-        String responseBody = readResponseBody(connection, responseCode);
-        Main.logger.logDebug("Update check response body: " + responseBody);
-
-        return new UpdateRequest(responseCode, responseBody);
-    }
-
-    private static HttpURLConnection createUpdateConnection(URL url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setDoOutput(true);
-        connection.setConnectTimeout(CONNECTION_TIMEOUT_MS);
-        connection.setReadTimeout(READ_TIMEOUT_MS);
-        return connection;
+            if (!result.isSuccessful()) {
+                handleUpdateRequestError(result);
+                throw new CompletionException(new IOException("Update check failed with HTTP " + result.getResponseCode()));
+            }
+            return parseUpdateResponse(result.getResponseBody());
+        });
     }
 
     private static JsonObject createUpdatePayload() {
@@ -156,32 +234,6 @@ public class Update {
         return payload;
     }
 
-    private static void sendRequestPayload(HttpURLConnection connection, JsonObject payload) throws IOException {
-        try (OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream())) {
-            writer.write(payload.toString());
-            writer.flush();
-            Main.logger.logDebug("Update check POST payload sent: " + payload);
-        }
-    }
-
-    private static String readResponseBody(HttpURLConnection connection, int responseCode) throws IOException {
-        InputStream inputStream = responseCode == 200 ?
-                connection.getInputStream() : connection.getErrorStream();
-
-        if (inputStream == null) {
-            return "";
-        }
-
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-        }
-        return response.toString().trim();
-    }
-
     private static void handleUpdateRequestError(UpdateRequest request) {
         int responseCode = request.getResponseCode();
         Main.logger.logError("HTTP Error: " + responseCode);
@@ -197,18 +249,21 @@ public class Update {
             return null;
         }
 
+        UpdateResponse updateResponse;
         try {
             Gson gson = new Gson();
-            UpdateResponse updateResponse = gson.fromJson(responseBody, UpdateResponse.class);
-            Main.logger.logDebug("Update check response: " + updateResponse);
-            Main.logger.logDebug("Parsed UpdateResponse: " + updateResponse);
-            return updateResponse;
+            updateResponse = gson.fromJson(responseBody, UpdateResponse.class);
         } catch (Exception e) {
             Main.logger.logError("Error parsing JSON response: " + e.getMessage(), e);
             Main.logger.logDebug("Exception: " + e);
-            Main.logger.logException(e);
-            return null;
+            throw new CompletionException(new IOException("Invalid update check response", e));
+        }
+
+        if (updateResponse == null) {
+            throw new CompletionException(new IOException("Empty update check response"));
         }
+        Main.logger.logDebug("Parsed UpdateResponse: " + updateResponse);
+        return updateResponse;
     }
 
     /**
@@ -277,6 +332,90 @@ public class Update {
         return runtime.exec(args, null, new File(updaterFile.getParent()));
     }
 
+    private boolean isCacheFresh() {
+        if (settings == null) {
+            return false;
+        }
+
+        Object lastCheck = settings.get(LAST_CHECK_KEY, null);
+        Object interval = settings.get(CHECK_INTERVAL_KEY, DEFAULT_CHECK_INTERVAL_MS);
+        long intervalMs = interval instanceof Number number ? number.longValue() : DEFAULT_CHECK_INTERVAL_MS;
+        if (!(lastCheck instanceof Number lastCheckMs) || !CURRENT_VERSION.equals(settings.get(LAST_CHECK_VERSION_KEY, null))) {
+            return false;
+        }
+
+        long age = System.currentTimeMillis() - lastCheckMs.longValue();
+        return age >= 0 && age < intervalMs;
+    }
+
+    /**
+     * @return the cached response if it is still fresh and announces an update, null otherwise
+     */
+    private UpdateResponse getCachedResponse() {
+        if (!isCacheFresh() || !(settings.get(LAST_RESULT_KEY, null) instanceof Map<?, ?> cached)) {
+            return null;
+        }
+
+        UpdateResponse response = new UpdateResponse();
+        response.update_available = Boolean.TRUE.equals(cached.get("update_available"));
+        response.latest_version = asString(cached.get("latest_version"));
+        response.current_version = asString(cached.get("current_version"));
+        response.download_url = asString(cached.get("download_url"));
+        response.release_url = asString(cached.get("release_url"));
+        response.published_at = asString(cached.get("published_at"));
+        response.updater_sha256 = asString(cached.get("updater_sha256"));
+        return response.update_available ? response : null;
+    }
+
+    private void cacheResponse(UpdateResponse response) {
+        if (settings == null) {
+            return;
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put(LAST_CHECK_KEY, System.currentTimeMillis());
+        values.put(LAST_CHECK_VERSION_KEY, CURRENT_VERSION);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("update_available", isUpdateAvailable(response));
+        if (isUpdateAvailable(response)) {
+            putIfPresent(result, "latest_version", response.latest_version);
+            putIfPresent(result, "current_version", response.current_version);
+            putIfPresent(result, "download_url", response.download_url);
+            putIfPresent(result, "release_url", response.release_url);
+            putIfPresent(result, "published_at", response.published_at);
+            putIfPresent(result, "updater_sha256", response.updater_sha256);
+        }
+        values.put(LAST_RESULT_KEY, result);
+        settings.putAll(values);
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static String asString(Object value) {
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    private void notifyListeners(UpdateResponse response) {
+        Main.logger.logInfo("Update available: " + response.latest_version);
+        for (ListenerRegistration registration : listeners) {
+            try {
+                registration.executor.execute(() -> {
+                    try {
+                        registration.listener.onUpdateAvailable(response);
+                    } catch (Exception e) {
+                        Main.logger.logError("Update listener failed: " + e.getMessage(), e);
+                    }
+                });
+            } catch (Exception e) {
+                Main.logger.logError("Failed to dispatch update notification: " + e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * Utility method to check if an update is available without launching updater
      * @return true if the update is available, false otherwise
@@ -308,6 +447,7 @@ public class Update {
         public String download_url;
         public String release_url;
         public String published_at;
+        public String updater_sha256;
 
         @Override
         public String toString() {
@@ -316,6 +456,33 @@ public class Update {
         }
     }
 
+    /**
+     * Logs download progress in steps of ten percent.
+     */
+    private static class DownloadProgressLogger implements DownloadManager.ProgressListener {
+        private int lastStep = -1;
+
+        @Override
+        public void onProgress(long downloadedBytes, long totalBytes, double bytesPerSecond) {
+            int step = totalBytes > 0 ? (int) (downloadedBytes * 10 / totalBytes) : lastStep + 1;
+            if (step != lastStep) {
+                lastStep = step;
+                Main.logger.logInfo(String.format("Updater download: %d of %s bytes (%.1f KB/s)", downloadedBytes,
+                        totalBytes >= 0 ? String.valueOf(totalBytes) : "?", bytesPerSecond / 1024));
+            }
+        }
+    }
+
+    private static class ListenerRegistration {
+        private final UpdateListener listener;
+        private final Executor executor;
+
+        private ListenerRegistration(UpdateListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
     /**
      * Helper class to encapsulate HTTP request/response data
      */
@@ -0,0 +1,61 @@
+package me.ghosthacks96.ghostsecure.utils.auth;
+
+import me.ghosthacks96.ghostsecure.Main;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Second factor using a one-time code sent by email through the GhostAPI. Needs network access.
+ */
+public class EmailSecondFactor implements SecondFactorProvider {
+
+    private final String email;
+    private volatile String expectedCode;
+
+    public EmailSecondFactor(String email) {
+        this.email = email;
+    }
+
+    @Override
+    public String getName() {
+        return "email";
+    }
+
+    @Override
+    public String getInstructions() {
+        return "Enter the verification code sent to your email";
+    }
+
+    @Override
+    public boolean startChallenge() {
+        String code = TwoFactorAuthUtil.sendVerificationCode(email);
+        if (code == null) {
+            return false;
+        }
+        expectedCode = code;
+        return true;
+    }
+
+    @Override
+    public boolean verify(String code) {
+        String expected = expectedCode;
+        if (expected == null || code == null) {
+            return false;
+        }
+
+        boolean valid = MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                code.trim().getBytes(StandardCharsets.UTF_8));
+        if (valid) {
+            // One-time: the same code cannot be entered twice
+            expectedCode = null;
+            Main.logger.logDebug("Email verification code accepted");
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean supportsResend() {
+        return true;
+    }
+}
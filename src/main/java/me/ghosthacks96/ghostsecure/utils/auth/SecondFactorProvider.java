@@ -0,0 +1,37 @@
+package me.ghosthacks96.ghostsecure.utils.auth;
+
+/**
+ * A way of proving a second factor with a short code, e.g. an emailed code or an authenticator app.
+ */
+public interface SecondFactorProvider {
+
+    /**
+     * @return a short name for logs
+     */
+    String getName();
+
+    /**
+     * @return the instructions shown above the code field
+     */
+    String getInstructions();
+
+    /**
+     * Issue a challenge, e.g. send a code. Called before the prompt is shown and again on resend.
+     *
+     * @return false if the challenge could not be issued
+     */
+    boolean startChallenge();
+
+    /**
+     * Check an entered code.
+     *
+     * @param code the code as entered
+     * @return true if it proves the second factor
+     */
+    boolean verify(String code);
+
+    /**
+     * @return true if {@link #startChallenge()} produces a new code, so the prompt should offer a resend button
+     */
+    boolean supportsResend();
+}
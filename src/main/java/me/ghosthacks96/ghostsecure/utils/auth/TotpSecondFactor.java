@@ -0,0 +1,253 @@
+package me.ghosthacks96.ghostsecure.utils.auth;
+
+import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Time-based one-time passwords (RFC 6238) from an authenticator app. Works offline.
+ *
+ * Uses the parameters every common authenticator app supports: HMAC-SHA1, 30 second steps and
+ * six digits. Codes from a few steps either side of the current one are accepted to allow for
+ * clock drift, and a step that has been used once is rejected afterwards so a code cannot be replayed.
+ */
+public class TotpSecondFactor implements SecondFactorProvider {
+
+    public static final String SECRET_KEY = "totp_secret";
+    private static final String LAST_STEP_KEY = "totp_last_step";
+    private static final String DRIFT_STEPS_KEY = "totp_drift_steps";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA1";
+    private static final long STEP_SECONDS = 30;
+    private static final int DIGITS = 6;
+    private static final int DIGITS_MODULUS = 1_000_000;
+    private static final int SECRET_LENGTH = 20;
+    private static final int DEFAULT_DRIFT_STEPS = 1;
+    private static final int MAX_DRIFT_STEPS = 10;
+    private static final String BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+
+    private final byte[] secret;
+    private final StorageManager usedSteps;
+    private final int driftSteps;
+
+    /**
+     * @param base32Secret the shared secret
+     * @param usedSteps where the last accepted step is kept to prevent replay, or null to skip that (e.g. during setup)
+     * @param driftSteps how many steps before and after the current one are accepted
+     */
+    public TotpSecondFactor(String base32Secret, StorageManager usedSteps, int driftSteps) {
+        this.secret = decodeBase32(base32Secret);
+        this.usedSteps = usedSteps;
+        this.driftSteps = Math.max(0, Math.min(driftSteps, MAX_DRIFT_STEPS));
+    }
+
+    /**
+     * Get the provider for the secret provisioned in the account storage.
+     *
+     * @return the provider, or null if no authenticator app is set up
+     */
+    public static TotpSecondFactor fromAccountStorage() {
+        String storedSecret = Main.accountStorage.get(SECRET_KEY, null);
+        if (storedSecret == null || storedSecret.isEmpty()) {
+            return null;
+        }
+        return new TotpSecondFactor(storedSecret, Main.accountStorage, getConfiguredDriftSteps());
+    }
+
+    /**
+     * @return true if an authenticator app is set up
+     */
+    public static boolean isProvisioned() {
+        return Main.accountStorage != null && Main.accountStorage.containsKey(SECRET_KEY);
+    }
+
+    /**
+     * Store a secret once the user has proven their app generates matching codes.
+     *
+     * @param base32Secret the secret from {@link #generateSecret()}
+     */
+    public static void provision(String base32Secret) {
+        Main.accountStorage.remove(LAST_STEP_KEY);
+        Main.accountStorage.put(SECRET_KEY, base32Secret);
+        Main.logger.logInfo("Authenticator app set up for two-factor authentication");
+    }
+
+    /**
+     * Remove the stored secret, falling back to email codes.
+     */
+    public static void deprovision() {
+        Main.accountStorage.remove(SECRET_KEY);
+        Main.accountStorage.remove(LAST_STEP_KEY);
+        Main.logger.logInfo("Authenticator app removed from two-factor authentication");
+    }
+
+    /**
+     * @return a new random secret in Base32, the form authenticator apps accept
+     */
+    public static String generateSecret() {
+        byte[] bytes = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        return encodeBase32(bytes);
+    }
+
+    /**
+     * Build the otpauth URI authenticator apps import (usually from a QR code).
+     *
+     * @param base32Secret the secret
+     * @param accountName shown in the app, e.g. the email address
+     * @return the URI
+     */
+    public static String getProvisioningUri(String base32Secret, String accountName) {
+        String label = URLEncoder.encode("GhostSecure:" + accountName, StandardCharsets.UTF_8).replace("+", "%20");
+        return "otpauth://totp/" + label + "?secret=" + base32Secret + "&issuer=GhostSecure&algorithm=SHA1&digits="
+                + DIGITS + "&period=" + STEP_SECONDS;
+    }
+
+    @Override
+    public String getName() {
+        return "totp";
+    }
+
+    @Override
+    public String getInstructions() {
+        return "Enter the code shown in your authenticator app";
+    }
+
+    @Override
+    public boolean startChallenge() {
+        // The app generates codes on its own
+        return true;
+    }
+
+    @Override
+    public boolean verify(String code) {
+        return verify(code, System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * Check a code against the steps around the given time.
+     *
+     * @param code the entered code
+     * @param epochSeconds the current time
+     * @return true if the code matches an unused step within the drift window
+     */
+    public synchronized boolean verify(String code, long epochSeconds) {
+        if (code == null) {
+            return false;
+        }
+        String trimmed = code.trim();
+        if (trimmed.length() != DIGITS || !trimmed.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int entered = Integer.parseInt(trimmed);
+
+        long currentStep = Math.floorDiv(epochSeconds, STEP_SECONDS);
+        long lastUsedStep = getLastUsedStep();
+
+        // Every step of the window is computed and compared, so timing does not reveal which one matched
+        long matchedStep = Long.MIN_VALUE;
+        for (long step = currentStep - driftSteps; step <= currentStep + driftSteps; step++) {
+            int difference = generateCode(secret, step) ^ entered;
+            boolean matches = difference == 0;
+            if (matches && step > lastUsedStep) {
+                matchedStep = step;
+            }
+        }
+
+        if (matchedStep == Long.MIN_VALUE) {
+            return false;
+        }
+
+        if (usedSteps != null) {
+            usedSteps.put(LAST_STEP_KEY, matchedStep);
+        }
+        Main.logger.logDebug("TOTP code accepted (step offset " + (matchedStep - currentStep) + ")");
+        return true;
+    }
+
+    @Override
+    public boolean supportsResend() {
+        return false;
+    }
+
+    private long getLastUsedStep() {
+        if (usedSteps == null) {
+            return Long.MIN_VALUE;
+        }
+        Object value = usedSteps.get(LAST_STEP_KEY, null);
+        return value instanceof Number number ? number.longValue() : Long.MIN_VALUE;
+    }
+
+    private static int getConfiguredDriftSteps() {
+        if (Main.systemConfigStorage == null) {
+            return DEFAULT_DRIFT_STEPS;
+        }
+        Object value = Main.systemConfigStorage.get(DRIFT_STEPS_KEY, DEFAULT_DRIFT_STEPS);
+        return value instanceof Number number ? number.intValue() : DEFAULT_DRIFT_STEPS;
+    }
+
+    /**
+     * HOTP (RFC 4226) value for one time step.
+     */
+    static int generateCode(byte[] key, long step) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            byte[] hash = mac.doFinal(ByteBuffer.allocate(Long.BYTES).putLong(step).array());
+
+            int offset = hash[hash.length - 1] & 0x0F;
+            int binary = ((hash[offset] & 0x7F) << 24)
+                    | ((hash[offset + 1] & 0xFF) << 16)
+                    | ((hash[offset + 2] & 0xFF) << 8)
+                    | (hash[offset + 3] & 0xFF);
+            return binary % DIGITS_MODULUS;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to compute TOTP code", e);
+        }
+    }
+
+    static String encodeBase32(byte[] data) {
+        StringBuilder encoded = new StringBuilder((data.length * 8 + 4) / 5);
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : data) {
+            buffer = (buffer << 8) | (b & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                encoded.append(BASE32_ALPHABET.charAt((buffer >> (bits - 5)) & 0x1F));
+                bits -= 5;
+            }
+        }
+        if (bits > 0) {
+            encoded.append(BASE32_ALPHABET.charAt((buffer << (5 - bits)) & 0x1F));
+        }
+        return encoded.toString();
+    }
+
+    static byte[] decodeBase32(String encoded) {
+        String normalized = encoded.replace(" ", "").replace("=", "").toUpperCase();
+        ByteBuffer decoded = ByteBuffer.allocate(normalized.length() * 5 / 8);
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            int value = BASE32_ALPHABET.indexOf(normalized.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid Base32 character in TOTP secret");
+            }
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                decoded.put((byte) (buffer >> (bits - 8)));
+                bits -= 8;
+            }
+        }
+        return decoded.array();
+    }
+}
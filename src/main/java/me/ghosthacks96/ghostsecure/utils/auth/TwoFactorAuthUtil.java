@@ -26,6 +26,22 @@ public class TwoFactorAuthUtil {
         return code.toString();
     }
     
+    /**
+     * Pick the second factor for this account: the authenticator app if one is set up, otherwise email codes
+     * @param email The user's email address, used for email codes
+     * @return the provider, or null if no second factor is available
+     */
+    public static SecondFactorProvider getSecondFactorProvider(String email) {
+        TotpSecondFactor totp = TotpSecondFactor.fromAccountStorage();
+        if (totp != null) {
+            return totp;
+        }
+        if (email == null || email.isEmpty()) {
+            return null;
+        }
+        return new EmailSecondFactor(email);
+    }
+
     /**
      * Send a verification code to the user's email
      * @param email The user's email address
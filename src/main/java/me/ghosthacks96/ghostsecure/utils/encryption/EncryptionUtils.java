@@ -1,12 +1,22 @@
 package me.ghosthacks96.ghostsecure.utils.encryption;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.SecretKeyFactory;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -176,4 +186,122 @@ public class EncryptionUtils {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Encrypt raw bytes using AES-GCM, binding them to the given associated data
+     * @param data The bytes to encrypt
+     * @param associatedData Authenticated but unencrypted context, must be passed again to decrypt
+     * @param key The encryption key
+     * @return IV followed by ciphertext and tag, or null on failure
+     */
+    public static byte[] encryptBytes(byte[] data, byte[] associatedData, SecretKey key) {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+            cipher.updateAAD(associatedData);
+
+            byte[] encryptedWithIv = new byte[GCM_IV_LENGTH + cipher.getOutputSize(data.length)];
+            System.arraycopy(iv, 0, encryptedWithIv, 0, GCM_IV_LENGTH);
+            cipher.doFinal(data, 0, data.length, encryptedWithIv, GCM_IV_LENGTH);
+            return encryptedWithIv;
+        } catch (Exception e) {
+            logger.logError("Encryption failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Decrypt bytes produced by {@link #encryptBytes(byte[], byte[], SecretKey)}
+     * @param encryptedData IV followed by ciphertext and tag
+     * @param associatedData The same associated data used to encrypt
+     * @param key The decryption key
+     * @return Decrypted bytes, or null if the data was tampered with or the key is wrong
+     */
+    public static byte[] decryptBytes(byte[] encryptedData, byte[] associatedData, SecretKey key) {
+        try {
+            if (encryptedData.length < GCM_IV_LENGTH + GCM_TAG_LENGTH) {
+                throw new IllegalArgumentException("Encrypted data too short");
+            }
+
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, encryptedData, 0, GCM_IV_LENGTH);
+            cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
+            cipher.updateAAD(associatedData);
+
+            return cipher.doFinal(encryptedData, GCM_IV_LENGTH, encryptedData.length - GCM_IV_LENGTH);
+        } catch (Exception e) {
+            logger.logError("Decryption failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Start an encrypted stream: writes a fresh IV to the target, and everything written to the
+     * returned stream is encrypted with AES-GCM. Closing the returned stream writes the tag and
+     * closes the target. Layout: IV, ciphertext, tag.
+     * @param out Where the encrypted bytes go
+     * @param associatedData Authenticated but unencrypted context, must be passed again to decrypt
+     * @param key The encryption key
+     * @return A stream accepting the plaintext; buffer small writes in front of it
+     */
+    public static OutputStream encryptTo(OutputStream out, byte[] associatedData, SecretKey key) throws IOException {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+            cipher.updateAAD(associatedData);
+
+            out.write(iv);
+            return new CipherOutputStream(out, cipher);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to initialize encryption", e);
+        }
+    }
+
+    /**
+     * Channel variant of {@link #encryptTo(OutputStream, byte[], SecretKey)}
+     */
+    public static OutputStream encryptTo(WritableByteChannel channel, byte[] associatedData, SecretKey key) throws IOException {
+        return encryptTo(Channels.newOutputStream(channel), associatedData, key);
+    }
+
+    /**
+     * Open a stream written by {@link #encryptTo(OutputStream, byte[], SecretKey)}: reads the IV
+     * from the source and returns a stream of the decrypted bytes. AES-GCM only releases plaintext
+     * once the tag has been verified, so nothing unauthenticated is ever returned; a wrong key or
+     * tampered data fails with an IOException instead.
+     * @param in The encrypted source, positioned at the IV
+     * @param associatedData The same associated data used to encrypt
+     * @param key The decryption key
+     * @return A stream of the plaintext
+     */
+    public static InputStream decryptFrom(InputStream in, byte[] associatedData, SecretKey key) throws IOException {
+        byte[] iv = in.readNBytes(GCM_IV_LENGTH);
+        if (iv.length != GCM_IV_LENGTH) {
+            throw new EOFException("Encrypted data too short");
+        }
+
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+            cipher.updateAAD(associatedData);
+            return new CipherInputStream(in, cipher);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to initialize decryption", e);
+        }
+    }
+
+    /**
+     * Channel variant of {@link #decryptFrom(InputStream, byte[], SecretKey)}
+     */
+    public static InputStream decryptFrom(ReadableByteChannel channel, byte[] associatedData, SecretKey key) throws IOException {
+        return decryptFrom(Channels.newInputStream(channel), associatedData, key);
+    }
+}
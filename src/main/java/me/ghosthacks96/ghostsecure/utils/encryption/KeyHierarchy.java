@@ -0,0 +1,114 @@
+package me.ghosthacks96.ghostsecure.utils.encryption;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static me.ghosthacks96.ghostsecure.Main.logger;
+
+/**
+ * Process-wide key cache.
+ *
+ * The expensive PBKDF2 derivation from user and system info runs once per salt and the resulting
+ * master key is shared. Each store then gets its own subkey from the master key with
+ * HKDF-SHA256 (RFC 5869), using the store name as context, so stores stay cryptographically
+ * separated while startup pays for PBKDF2 only once.
+ */
+public final class KeyHierarchy {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+    private static final int SUBKEY_LENGTH = 32;
+    private static final String STORE_CONTEXT_PREFIX = "ghostsecure/storage/v1/";
+
+    // Master keys by Base64 salt
+    private static final Map<String, SecretKey> MASTER_KEYS = new ConcurrentHashMap<>();
+
+    private KeyHierarchy() {
+    }
+
+    /**
+     * Get the master key for a salt, deriving it with PBKDF2 on first use.
+     * Concurrent callers with the same salt wait for a single derivation.
+     *
+     * @param salt the salt the key is derived with
+     * @return the master key; for existing data this is the key older versions used directly
+     */
+    public static SecretKey getMasterKey(byte[] salt) {
+        String cacheKey = Base64.getEncoder().encodeToString(salt);
+        SecretKey masterKey = MASTER_KEYS.computeIfAbsent(cacheKey, ignored -> {
+            long start = System.nanoTime();
+            SecretKey derived = EncryptionUtils.deriveKeyFromUserInfo(
+                    System.getProperty("user.name"), EncryptionUtils.getSystemInfo(), salt);
+            if (derived != null) {
+                logger.logDebug("Master key derived in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            return derived;
+        });
+
+        if (masterKey == null) {
+            throw new IllegalStateException("Failed to derive master key");
+        }
+        return masterKey;
+    }
+
+    /**
+     * Get the key for one store: an HKDF subkey of the master key for the salt.
+     *
+     * @param salt the salt of the master key
+     * @param storeName the store name, used as HKDF context
+     * @return the store key
+     */
+    public static SecretKey getStoreKey(byte[] salt, String storeName) {
+        return deriveSubkey(getMasterKey(salt), STORE_CONTEXT_PREFIX + storeName);
+    }
+
+    /**
+     * Derive an AES subkey with HKDF-SHA256. Cheap (two HMACs), so results are not cached.
+     *
+     * @param masterKey the input key material
+     * @param context distinguishes subkeys of the same master key
+     * @return a 256-bit AES key
+     */
+    public static SecretKey deriveSubkey(SecretKey masterKey, String context) {
+        try {
+            // Extract with an all-zero salt: the master key already comes out of PBKDF2
+            byte[] pseudoRandomKey = hmac(new byte[HASH_LENGTH], masterKey.getEncoded());
+            byte[] keyBytes = expand(pseudoRandomKey, context.getBytes(StandardCharsets.UTF_8), SUBKEY_LENGTH);
+            return new SecretKeySpec(keyBytes, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive subkey", e);
+        }
+    }
+
+    private static byte[] expand(byte[] pseudoRandomKey, byte[] info, int length) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(pseudoRandomKey, HMAC_ALGORITHM));
+
+        byte[] output = new byte[length];
+        byte[] block = new byte[0];
+        int written = 0;
+        for (int counter = 1; written < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+
+            int chunk = Math.min(block.length, length - written);
+            System.arraycopy(block, 0, output, written, chunk);
+            written += chunk;
+        }
+        return output;
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        return mac.doFinal(data);
+    }
+}
@@ -0,0 +1,229 @@
+package me.ghosthacks96.ghostsecure.utils.file_handlers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary codec.
+ *
+ * Layout: one format version byte, then the root map as a tagged value. Every value starts with a
+ * one-byte tag. Integers are zigzag varints, doubles are 8 bytes, strings are a varint length
+ * followed by UTF-8, lists and maps are a varint count followed by their elements (maps as
+ * key/value pairs). Integers decode to Integer when they fit and Long otherwise, like YAML.
+ */
+public final class BinaryStorageCodec implements StorageCodec {
+
+    public static final String NAME = "binary";
+    public static final int ID = 2;
+    public static final BinaryStorageCodec INSTANCE = new BinaryStorageCodec();
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_DEPTH = 64;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_LIST = 6;
+    private static final int TAG_MAP = 7;
+    private static final int TAG_BYTES = 8;
+
+    private BinaryStorageCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Map<String, Object> data, OutputStream out) throws IOException {
+        out.write(FORMAT_VERSION);
+        writeValue(out, data, 0);
+        out.flush();
+    }
+
+    @Override
+    public Map<String, Object> decode(InputStream in) throws IOException {
+        int version = readByte(in);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary storage format version: " + version);
+        }
+
+        Object root = readValue(in, 0);
+        if (!(root instanceof Map<?, ?> map)) {
+            throw new IOException("Binary storage root is not a map");
+        }
+        if (in.read() != -1) {
+            throw new IOException("Trailing bytes after binary storage data");
+        }
+
+        Map<String, Object> dataMap = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            dataMap.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return dataMap;
+    }
+
+    private static void writeValue(OutputStream out, Object value, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Storage data nested too deeply");
+        }
+
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.write(TAG_INT);
+            long number = ((Number) value).longValue();
+            writeVarLong(out, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(TAG_DOUBLE);
+            long bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof String string) {
+            out.write(TAG_STRING);
+            writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof byte[] bytes) {
+            out.write(TAG_BYTES);
+            writeBytes(out, bytes);
+        } else if (value instanceof List<?> list) {
+            out.write(TAG_LIST);
+            writeVarLong(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element, depth + 1);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.write(TAG_MAP);
+            writeVarLong(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey(), depth + 1);
+                writeValue(out, entry.getValue(), depth + 1);
+            }
+        } else {
+            throw new IOException("Unsupported storage value type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(InputStream in, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Storage data nested too deeply");
+        }
+
+        int tag = readByte(in);
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_INT: {
+                long zigzag = readVarLong(in);
+                long number = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (number == (int) number) {
+                    return (int) number;
+                }
+                return number;
+            }
+            case TAG_DOUBLE: {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | readByte(in);
+                }
+                return Double.longBitsToDouble(bits);
+            }
+            case TAG_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TAG_BYTES:
+                return readBytes(in);
+            case TAG_LIST: {
+                int count = readCount(in);
+                List<Object> list = new ArrayList<>(Math.min(count, 1024));
+                for (int i = 0; i < count; i++) {
+                    list.add(readValue(in, depth + 1));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int count = readCount(in);
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, Math.min(count, 1024) * 2));
+                for (int i = 0; i < count; i++) {
+                    Object key = readValue(in, depth + 1);
+                    map.put(key, readValue(in, depth + 1));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("Unknown binary storage tag: " + tag);
+        }
+    }
+
+    private static void writeBytes(OutputStream out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        int length = readCount(in);
+        // readNBytes grows its buffer as data arrives, so a corrupt length cannot force a huge allocation
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Binary storage data is truncated");
+        }
+        return bytes;
+    }
+
+    private static int readCount(InputStream in) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length in binary storage data: " + count);
+        }
+        return (int) count;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Binary storage data is truncated");
+        }
+        return b;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in binary storage data");
+    }
+}
@@ -7,6 +7,7 @@ import com.google.gson.JsonSyntaxException;
 import me.ghosthacks96.ghostsecure.Main;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedItem;
 import me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils;
+import me.ghosthacks96.ghostsecure.utils.encryption.KeyHierarchy;
 import me.ghosthacks96.ghostsecure.itemTypes.LockedItemFactory;
 
 import javax.crypto.SecretKey;
@@ -75,12 +76,9 @@ public class Config {
         logger.logDebug("Initializing encryption...");
 
         try {
-            String username = System.getProperty("user.name");
-            String systemInfo = EncryptionUtils.getSystemInfo();
-            logger.logDebug("Username: " + username + ", SystemInfo: " + systemInfo);
-
             byte[] keySalt = loadOrCreateSalt();
-            encryptionKey = EncryptionUtils.deriveKeyFromUserInfo(username, systemInfo, keySalt);
+            // The legacy config is encrypted with the master key itself; shared with anything else using this salt
+            encryptionKey = KeyHierarchy.getMasterKey(keySalt);
 
             initialized = true;
             logger.logInfo("Encryption initialized successfully.");
@@ -24,6 +24,7 @@ public class Logging {
     private static ScheduledExecutorService scheduler;
     public static DebugConsole debugConsole;
     private volatile boolean isShuttingDown = false;
+    private volatile boolean debugConsoleEnabled = true;
 
     public Logging() {
         executor = Executors.newSingleThreadExecutor(r -> {
@@ -36,6 +37,14 @@ public class Logging {
         logInfo("Logging system initialized");
     }
 
+    /**
+     * Turn the debug console window on or off; without it debug output only goes to the log file.
+     * Must be off when the JavaFX toolkit is not running.
+     */
+    public void setDebugConsoleEnabled(boolean enabled) {
+        debugConsoleEnabled = enabled;
+    }
+
     public void logInfo(String message) {
         log(LogLevel.INFO, message, null);
     }
@@ -88,7 +97,7 @@ public class Logging {
         }
 
         // Show in debug console if enabled
-        if (Main.DEBUG_MODE) {
+        if (Main.DEBUG_MODE && debugConsoleEnabled) {
             if (debugConsole == null) {
                 try {
                     javafx.application.Platform.runLater(() -> {
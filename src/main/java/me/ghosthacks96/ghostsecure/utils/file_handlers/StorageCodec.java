@@ -0,0 +1,94 @@
+package me.ghosthacks96.ghostsecure.utils.file_handlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Converts the contents of a store to bytes and back.
+ * The id of the codec that wrote a file is recorded in its header, so a store can always read
+ * files written with another codec and switches codec on its next save.
+ */
+public interface StorageCodec {
+
+    /**
+     * @return the stable id stored in file headers
+     */
+    int getId();
+
+    /**
+     * @return the name used in settings
+     */
+    String getName();
+
+    /**
+     * Encode the store contents straight into a stream, without building the whole encoding in memory.
+     * The stream is flushed but not closed.
+     *
+     * @param data the store contents
+     * @param out where the encoding goes; small writes are made, so buffer it
+     */
+    void encode(Map<String, Object> data, OutputStream out) throws IOException;
+
+    /**
+     * Decode store contents from a stream, reading it to the end.
+     *
+     * @param in a stream positioned at data produced by {@link #encode(Map, OutputStream)}
+     * @return a new mutable map with the decoded contents
+     */
+    Map<String, Object> decode(InputStream in) throws IOException;
+
+    /**
+     * @param data the store contents
+     * @return the encoded bytes
+     */
+    default byte[] encode(Map<String, Object> data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(data, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes bytes produced by {@link #encode(Map)}
+     * @return a new mutable map with the decoded contents
+     */
+    default Map<String, Object> decode(byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Get a codec by the id recorded in a file header.
+     *
+     * @param id the codec id
+     * @return the codec
+     * @throws IOException if no codec has that id
+     */
+    static StorageCodec forId(int id) throws IOException {
+        if (id == YamlStorageCodec.ID) {
+            return YamlStorageCodec.INSTANCE;
+        }
+        if (id == BinaryStorageCodec.ID) {
+            return BinaryStorageCodec.INSTANCE;
+        }
+        throw new IOException("Unknown storage codec id: " + id);
+    }
+
+    /**
+     * Get a codec by its settings name.
+     *
+     * @param name "yaml" or "binary"
+     * @return the codec
+     */
+    static StorageCodec forName(String name) {
+        if (BinaryStorageCodec.NAME.equalsIgnoreCase(name)) {
+            return BinaryStorageCodec.INSTANCE;
+        }
+        if (YamlStorageCodec.NAME.equalsIgnoreCase(name)) {
+            return YamlStorageCodec.INSTANCE;
+        }
+        throw new IllegalArgumentException("Unknown storage codec: " + name);
+    }
+}
@@ -0,0 +1,61 @@
+package me.ghosthacks96.ghostsecure.utils.file_handlers;
+
+import me.ghosthacks96.ghostsecure.Main;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exclusive lock on the storage directory, held for the lifetime of the process.
+ *
+ * The full application and the headless blocker read and write the same stores and journals, and
+ * neither expects another process to change them underneath it. Both take this lock before opening
+ * any store and refuse to start while another process holds it. The operating system releases the
+ * lock when the process ends, also after a crash, so a stale lock file never blocks a start.
+ */
+public final class StorageDirectoryLock {
+
+    private static final String LOCK_FILE_NAME = ".lock";
+
+    // Holds its channel open until the process exits
+    private static FileLock lock;
+
+    private StorageDirectoryLock() {
+    }
+
+    /**
+     * Take the lock unless this process already holds it.
+     *
+     * @return true if this process holds the lock, false if another process does
+     * @throws IOException if the lock file cannot be opened
+     */
+    public static synchronized boolean acquire() throws IOException {
+        if (lock != null) {
+            return true;
+        }
+
+        Path storageDir = Paths.get(Main.APP_DATA_PATH, "storage");
+        Files.createDirectories(storageDir);
+        FileChannel opened = FileChannel.open(storageDir.resolve(LOCK_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = opened.tryLock();
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+
+        if (acquired == null) {
+            opened.close();
+            return false;
+        }
+        lock = acquired;
+        return true;
+    }
+}
@@ -0,0 +1,367 @@
+package me.ghosthacks96.ghostsecure.utils.file_handlers;
+
+import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log kept next to a storage file.
+ *
+ * Each record holds the operations of one mutation. Records of an encrypted store are sealed
+ * individually with AES-GCM, bound to the journal id and record index so they cannot be
+ * reordered or moved between journals. A torn record at the end of the file (crash mid-write)
+ * is detected by its length and checksum and ignored on replay.
+ *
+ * File layout: magic, sealed flag, codec id, 16-byte journal id, then records of
+ * [payload length][CRC32 of payload][payload]. A payload is the codec encoding of {"ops": [...]}.
+ *
+ * Compaction first rotates the active journal aside, then the owner writes a full snapshot
+ * and discards the rotated journal. Replaying records onto a snapshot that already contains
+ * them gives the same result, so a crash at any point of that sequence loses nothing.
+ */
+final class StorageJournal {
+
+    static final String OP_PUT = "put";
+    static final String OP_REMOVE = "remove";
+    static final String OP_CLEAR = "clear";
+    static final String FAILED_SUFFIX = ".failed";
+
+    private static final int MAGIC = 0x47534A31; // "GSJ1"
+    private static final int JOURNAL_ID_LENGTH = 16;
+    private static final int HEADER_LENGTH = 4 + 1 + 1 + JOURNAL_ID_LENGTH;
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    private final Logging logger;
+    private final Path activePath;
+    private final Path rotatedPath;
+    private final byte[] storeName;
+    private final SecretKey key;
+    private final StorageCodec codec;
+
+    private FileChannel channel;
+    private byte[] journalId;
+    private long recordCount;
+    private long size;
+
+    /**
+     * @param activePath the journal new records are appended to
+     * @param rotatedPath where the active journal is moved while a compaction is in progress
+     * @param storeName the owning store, bound into every sealed record
+     * @param key the store key, or null to write unsealed records for an unencrypted store
+     * @param codec the codec new records are written with; replay uses the codec recorded in each journal
+     */
+    StorageJournal(Path activePath, Path rotatedPath, String storeName, SecretKey key, StorageCodec codec) {
+        this.logger = Main.logger;
+        this.activePath = activePath;
+        this.rotatedPath = rotatedPath;
+        this.storeName = storeName.getBytes(StandardCharsets.UTF_8);
+        this.key = key;
+        this.codec = codec;
+    }
+
+    /**
+     * Apply every intact record of the rotated and the active journal to the given map, oldest first.
+     *
+     * @param target the data loaded from the snapshot
+     * @return the number of records applied
+     */
+    synchronized int replay(Map<String, Object> target) throws IOException {
+        int applied = 0;
+        if (Files.exists(rotatedPath)) {
+            applied += replayFile(rotatedPath, target);
+        }
+        if (Files.exists(activePath)) {
+            applied += replayFile(activePath, target);
+        }
+        return applied;
+    }
+
+    /**
+     * Check whether there is anything to replay.
+     *
+     * @return true if the rotated journal exists or the active one holds records
+     */
+    boolean hasPendingFiles() throws IOException {
+        return Files.exists(rotatedPath)
+                || (Files.exists(activePath) && Files.size(activePath) > HEADER_LENGTH);
+    }
+
+    /**
+     * Move both journal files aside, appending {@value #FAILED_SUFFIX} to their names, so records that
+     * could not be replayed are kept for inspection but never applied over a later snapshot.
+     */
+    synchronized void setAside() throws IOException {
+        closeChannel();
+        for (Path path : new Path[]{rotatedPath, activePath}) {
+            if (Files.exists(path)) {
+                Path failed = path.resolveSibling(path.getFileName() + FAILED_SUFFIX);
+                Files.move(path, failed, StandardCopyOption.REPLACE_EXISTING);
+                logger.logWarning("Storage journal moved aside: " + failed);
+            }
+        }
+    }
+
+    /**
+     * Delete both journal files and start an empty one. Only call once the snapshot holds every record.
+     */
+    synchronized void reset() throws IOException {
+        closeChannel();
+        Files.deleteIfExists(rotatedPath);
+        Files.deleteIfExists(activePath);
+        openNewJournal();
+    }
+
+    /**
+     * Append one record holding the operations of a single mutation.
+     *
+     * @param operations maps with an "op" entry and, depending on it, "key" and "value"
+     */
+    synchronized void append(List<Map<String, Object>> operations) throws IOException {
+        if (channel == null) {
+            throw new IOException("Storage journal is not open: " + activePath);
+        }
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("ops", operations);
+        byte[] payload = codec.encode(record);
+        if (key != null) {
+            payload = EncryptionUtils.encryptBytes(payload, associatedData(journalId, recordCount), key);
+            if (payload == null) {
+                throw new IOException("Failed to seal journal record");
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_LENGTH + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        recordCount++;
+        size += RECORD_HEADER_LENGTH + payload.length;
+    }
+
+    /**
+     * Move the active journal aside and start a new one, so a snapshot can be taken while mutations continue.
+     * Must be called while the owner blocks mutations.
+     *
+     * @return false if a previously rotated journal is still waiting to be discarded; appends then continue on the active journal
+     */
+    synchronized boolean rotate() throws IOException {
+        if (Files.exists(rotatedPath)) {
+            return false;
+        }
+
+        closeChannel();
+        if (Files.exists(activePath)) {
+            Files.move(activePath, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        openNewJournal();
+        return true;
+    }
+
+    /**
+     * Delete the rotated journal once a snapshot containing its records has been written.
+     */
+    synchronized void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    /**
+     * Force appended records to disk.
+     */
+    synchronized void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            logger.logWarning("Failed to close storage journal: " + e.getMessage());
+        }
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    static Map<String, Object> putOperation(String key, Object value) {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("op", OP_PUT);
+        operation.put("key", key);
+        operation.put("value", value);
+        return operation;
+    }
+
+    static Map<String, Object> removeOperation(String key) {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("op", OP_REMOVE);
+        operation.put("key", key);
+        return operation;
+    }
+
+    static Map<String, Object> clearOperation() {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("op", OP_CLEAR);
+        return operation;
+    }
+
+    private void openNewJournal() throws IOException {
+        journalId = new byte[JOURNAL_ID_LENGTH];
+        new SecureRandom().nextBytes(journalId);
+
+        channel = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).put((byte) (key != null ? 1 : 0)).put((byte) codec.getId()).put(journalId).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        recordCount = 0;
+        size = HEADER_LENGTH;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private int replayFile(Path path, Map<String, Object> target) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            if (!readFully(in, header)) {
+                logger.logWarning("Storage journal has a truncated header, ignoring: " + path);
+                return 0;
+            }
+
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a storage journal: " + path);
+            }
+            boolean sealed = header.get() == 1;
+            if (sealed != (key != null)) {
+                throw new IOException("Storage journal encryption does not match its store: " + path);
+            }
+            StorageCodec recordCodec = StorageCodec.forId(header.get() & 0xFF);
+            byte[] id = new byte[JOURNAL_ID_LENGTH];
+            header.get(id);
+
+            int index = 0;
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+            while (true) {
+                recordHeader.clear();
+                if (!readFully(in, recordHeader)) {
+                    if (recordHeader.position() > 0) {
+                        logger.logWarning("Ignoring torn record at the end of " + path);
+                    }
+                    break;
+                }
+
+                recordHeader.flip();
+                int length = recordHeader.getInt();
+                int checksum = recordHeader.getInt();
+                if (length < 0 || length > in.size() - in.position()) {
+                    logger.logWarning("Ignoring torn record at the end of " + path);
+                    break;
+                }
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    logger.logWarning("Ignoring corrupt record " + index + " and everything after it in " + path);
+                    break;
+                }
+
+                byte[] bytes = payload.array();
+                if (sealed) {
+                    bytes = EncryptionUtils.decryptBytes(bytes, associatedData(id, index), key);
+                    if (bytes == null) {
+                        logger.logWarning("Ignoring unverifiable record " + index + " and everything after it in " + path);
+                        break;
+                    }
+                }
+
+                apply(recordCodec.decode(bytes).get("ops"), target);
+                index++;
+            }
+
+            logger.logDebug("Replayed " + index + " journal records from " + path);
+            return index;
+        }
+    }
+
+    private void apply(Object record, Map<String, Object> target) {
+        if (!(record instanceof List<?> operations)) {
+            logger.logWarning("Skipping malformed journal record");
+            return;
+        }
+
+        for (Object element : operations) {
+            if (!(element instanceof Map<?, ?> operation)) {
+                continue;
+            }
+
+            Object op = operation.get("op");
+            String key = String.valueOf(operation.get("key"));
+            if (OP_PUT.equals(op)) {
+                Object value = operation.get("value");
+                if (value != null) {
+                    target.put(key, value);
+                } else {
+                    target.remove(key);
+                }
+            } else if (OP_REMOVE.equals(op)) {
+                target.remove(key);
+            } else if (OP_CLEAR.equals(op)) {
+                target.clear();
+            } else {
+                logger.logWarning("Skipping unknown journal operation: " + op);
+            }
+        }
+    }
+
+    private byte[] associatedData(byte[] id, long index) {
+        return ByteBuffer.allocate(storeName.length + id.length + Long.BYTES)
+                .put(storeName)
+                .put(id)
+                .putLong(index)
+                .array();
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
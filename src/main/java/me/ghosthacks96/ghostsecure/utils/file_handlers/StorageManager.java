@@ -2,20 +2,37 @@ package me.ghosthacks96.ghostsecure.utils.file_handlers;
 
 import me.ghosthacks96.ghostsecure.Main;
 import me.ghosthacks96.ghostsecure.utils.encryption.EncryptionUtils;
-import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.constructor.Constructor;
-import org.yaml.snakeyaml.representer.Representer;
+import me.ghosthacks96.ghostsecure.utils.encryption.KeyHierarchy;
 
 import javax.crypto.SecretKey;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -30,6 +47,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * - Hierarchical key-value storage
  * - Batch operations
  * - Automatic file validation
+ * - Lock-free versioned snapshots for frequent readers
+ * - Change subscriptions with per-key events
+ * - Optional write-behind mode that coalesces saves
+ * - Optional append-only journal with background compaction
+ * - Pluggable codecs (YAML or compact binary), recorded in the file header
  */
 public class StorageManager {
 
@@ -42,12 +64,32 @@ public class StorageManager {
     private static final String UNENCRYPTED_TEMP_FILE_EXTENSION = ".yaml.tmp";
     private static final String DEFAULT_STORAGE_FILE = "storage";
     private static final String STORAGE_SALT_FILE = "storage.salt";
+    private static final String JOURNAL_FILE_EXTENSION = ".journal";
+    private static final String ROTATED_JOURNAL_FILE_EXTENSION = ".journal.old";
+
+    // File header: magic (never valid YAML or Base64), format version, codec id, flags.
+    // Files without it are from older versions: YAML text, Base64 encrypted if the store is.
+    private static final byte[] FILE_MAGIC = {(byte) 0x89, 'G', 'S', 'S'};
+    private static final int FILE_FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = FILE_MAGIC.length + 3;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int FLAG_STORE_KEY = 2;   // sealed with the per-store subkey rather than the shared master key
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // Single daemon thread shared by every store for write-behind saves
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "StorageFlusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Stores may be opened concurrently at startup, they must all agree on one salt
+    private static final Object SALT_LOCK = new Object();
 
     // Instance fields
     private final Logging logger;
     private final ReadWriteLock storageLock;
     private final Map<String, Object> storageData;
-    private final Yaml yaml;
     private final String storageFileName;
     private final Path storageFilePath;
     private final Path backupFilePath;
@@ -55,6 +97,26 @@ public class StorageManager {
     private final boolean useEncryption;
 
     private SecretKey encryptionKey;
+    private SecretKey masterKey;   // only for reading files written before per-store keys
+    private volatile Snapshot snapshot;
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private final Object flushMonitor = new Object();
+    private volatile long savedVersion = -1;
+    private volatile long writeBehindDelayMs;
+    private ScheduledFuture<?> scheduledFlush;       // guarded by flushMonitor
+    private CompletableFuture<Void> pendingFlush;    // guarded by flushMonitor
+    private final ReentrantLock compactLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private volatile StorageJournal journal;
+    private long journalMaxBytes;
+    private long journalMaxRecords;
+    private boolean dataLoaded;
+    // The storage file exists but could not be read, nor recovered from the backup; it is never overwritten while set
+    private volatile boolean loadFailed;
+    private volatile StorageCodec codec = YamlStorageCodec.INSTANCE;
+    private StorageCodec lastReadCodec;   // codec of the file last read, null if it is in a legacy format
+    private long snapshotVersion;
     private boolean initialized;
     private boolean autoSave;
     private long lastModified;
@@ -92,9 +154,8 @@ public class StorageManager {
         this.initialized = false;
         this.lastModified = 0;
         this.useEncryption = useEncryption;
-
-        // Configure YAML with proper settings
-        this.yaml = createYamlInstance();
+        this.snapshot = Snapshot.EMPTY;
+        this.snapshotVersion = 0;
 
         // Initialize file paths with appropriate extensions based on encryption setting
         String fileExtension = useEncryption ? STORAGE_FILE_EXTENSION : UNENCRYPTED_STORAGE_FILE_EXTENSION;
@@ -124,24 +185,6 @@ public class StorageManager {
         }
     }
 
-    /**
-     * Create a properly configured YAML instance.
-     */
-    private Yaml createYamlInstance() {
-        DumperOptions options = new DumperOptions();
-        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        options.setPrettyFlow(true);
-        options.setIndent(2);
-        options.setCanonical(false);
-        options.setExplicitStart(false);
-        options.setExplicitEnd(false);
-
-        Representer representer = new Representer(options);
-        representer.getPropertyUtils().setSkipMissingProperties(true);
-
-        return new Yaml(representer, options);
-    }
-
     /**
      * Initialize encryption for storage operations.
      */
@@ -149,15 +192,10 @@ public class StorageManager {
         logger.logDebug("Initializing storage encryption...");
 
         try {
-            String username = System.getProperty("user.name");
-            String systemInfo = EncryptionUtils.getSystemInfo();
-
+            // PBKDF2 runs once per process for all stores, each store gets its own HKDF subkey
             byte[] storageSalt = loadOrCreateStorageSalt();
-            encryptionKey = EncryptionUtils.deriveKeyFromUserInfo(username, systemInfo, storageSalt);
-
-            if (encryptionKey == null) {
-                throw new StorageException("Failed to derive encryption key");
-            }
+            masterKey = KeyHierarchy.getMasterKey(storageSalt);
+            encryptionKey = KeyHierarchy.getStoreKey(storageSalt, storageFileName);
 
             initialized = true;
             logger.logInfo("Storage encryption initialized successfully for: " + storageFileName);
@@ -174,18 +212,20 @@ public class StorageManager {
     private byte[] loadOrCreateStorageSalt() throws IOException {
         Path saltPath = Paths.get(APP_STORAGE_DIR, STORAGE_SALT_FILE);
 
-        if (Files.exists(saltPath)) {
-            logger.logDebug("Loading existing storage salt file");
-            return Files.readAllBytes(saltPath);
-        } else {
-            logger.logDebug("Creating new storage salt file");
-            byte[] newSalt = EncryptionUtils.generateSalt();
+        synchronized (SALT_LOCK) {
+            if (Files.exists(saltPath)) {
+                logger.logDebug("Loading existing storage salt file");
+                return Files.readAllBytes(saltPath);
+            } else {
+                logger.logDebug("Creating new storage salt file");
+                byte[] newSalt = EncryptionUtils.generateSalt();
 
-            ensureAppDataDirectoryExists();
-            Files.write(saltPath, newSalt);
+                ensureAppDataDirectoryExists();
+                Files.write(saltPath, newSalt);
 
-            logger.logInfo("New storage encryption salt created.");
-            return newSalt;
+                logger.logInfo("New storage encryption salt created.");
+                return newSalt;
+            }
         }
     }
 
@@ -208,39 +248,134 @@ public class StorageManager {
 
     /**
      * Load data from encrypted YAML file.
+     * If the file cannot be read and the backup cannot be restored either, the store starts empty and is not
+     * saved, nor journaled, until a later load succeeds, so the file, its backup and the journal stay intact.
      */
     public void loadData() {
         if (!initialized) {
             throw new StorageException("StorageManager not initialized");
         }
 
+        List<ChangeEvent> changes = List.of();
+        boolean recovered = false;
+        boolean replayed = false;
+        boolean fileCurrent = false;
+        boolean failed = false;
         storageLock.writeLock().lock();
         try {
-            logger.logDebug("Loading storage data from: " + storageFilePath);
-
-            // Ensure storage directory exists
             try {
-                ensureAppDataDirectoryExists();
-            } catch (IOException e) {
-                logger.logError("Failed to create storage directory", e);
-                throw new StorageException("Failed to create storage directory", e);
+                logger.logDebug("Loading storage data from: " + storageFilePath);
+
+                // Ensure storage directory exists
+                try {
+                    ensureAppDataDirectoryExists();
+                } catch (IOException e) {
+                    logger.logError("Failed to create storage directory", e);
+                    throw new StorageException("Failed to create storage directory", e);
+                }
+
+                if (!Files.exists(storageFilePath)) {
+                    handleMissingStorageFile();
+                } else {
+                    loadDataFromFile();
+                    updateLastModified();
+                    // A file in another codec or the legacy format is rewritten on the next save
+                    fileCurrent = lastReadCodec == codec;
+
+                    logger.logInfo("Storage data loaded successfully: " + storageData.size() + " entries");
+                }
+
+            } catch (Exception e) {
+                logger.logError("Failed to load storage data", e);
+                recovered = attemptRecoveryFromBackup();
+                failed = !recovered;
             }
 
-            if (!Files.exists(storageFilePath)) {
-                handleMissingStorageFile();
-                return;
+            if (journal != null && failed) {
+                // The journal belongs to the file that could not be read; leave both as they are for a later load
+                logger.logWarning("Storage journal disabled for this session, " + storageFileName + " could not be loaded");
+                journal.close();
+                journal = null;
+            } else if (journal != null) {
+                try {
+                    replayed = replayJournal();
+                } catch (Exception e) {
+                    // Left in place the records would be replayed over the next, newer snapshot
+                    logger.logError("Failed to replay storage journal for " + storageFileName + ", moving it aside", e);
+                    try {
+                        journal.setAside();
+                    } catch (IOException moveError) {
+                        logger.logError("Failed to move storage journal aside for " + storageFileName
+                                + ", not saving it this session", moveError);
+                        journal.close();
+                        journal = null;
+                        failed = true;
+                    }
+                }
+            }
+        } finally {
+            changes = publishSnapshot(null);
+            queueChanges(changes);
+            if (fileCurrent) {
+                // Memory now matches the file, nothing to save until the next mutation
+                savedVersion = snapshot.getVersion();
+            }
+            if (journal != null) {
+                // Still under the write lock so no mutation can land in a journal that is about to be reset
+                startJournal(recovered || replayed || !fileCurrent);
             }
+            loadFailed = failed;
+            dataLoaded = true;
+            storageLock.writeLock().unlock();
+            dispatchChanges(changes);
+        }
 
-            loadDataFromFile();
-            updateLastModified();
+        if (recovered && journal == null) {
+            saveData(); // Save recovered data to main file
+        }
+    }
 
-            logger.logInfo("Storage data loaded successfully: " + storageData.size() + " entries");
+    /**
+     * Apply journal records left by the previous session on top of the loaded snapshot.
+     * The records are applied to a copy first, so a journal that fails halfway leaves the snapshot as loaded.
+     * Must be called while holding the write lock.
+     *
+     * @return true if the journal held anything, so the snapshot needs rewriting
+     */
+    private boolean replayJournal() throws IOException {
+        if (!journal.hasPendingFiles()) {
+            return false;
+        }
+
+        Map<String, Object> replayedData = new LinkedHashMap<>(storageData);
+        int records = journal.replay(replayedData);
+        storageData.clear();
+        storageData.putAll(replayedData);
+        updateLastModified();
+        logger.logInfo("Replayed " + records + " journal records for: " + storageFileName);
+        return true;
+    }
 
+    /**
+     * Fold anything replayed into a fresh snapshot and open an empty journal for this session.
+     * Must be called while holding the write lock, after publishing the snapshot. If that fails the store falls back to full saves; the old journal files are left for the next load.
+     */
+    private void startJournal(boolean writeSnapshot) {
+        saveLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (writeSnapshot || !Files.exists(storageFilePath)) {
+                writeStorageFile(current);
+                savedVersion = current.getVersion();
+            }
+            journal.reset();
+            logger.logDebug("Storage journal started for: " + storageFileName);
         } catch (Exception e) {
-            logger.logError("Failed to load storage data", e);
-            attemptRecoveryFromBackup();
+            logger.logError("Failed to start storage journal for " + storageFileName + ", using full saves", e);
+            journal.close();
+            journal = null;
         } finally {
-            storageLock.writeLock().unlock();
+            saveLock.unlock();
         }
     }
 
@@ -257,67 +392,102 @@ public class StorageManager {
      * Load data from the main storage file.
      */
     private void loadDataFromFile() throws IOException {
-        String fileContent = Files.readString(storageFilePath);
-        String yamlContent;
+        Map<String, Object> dataMap = readStorageFile(storageFilePath);
+        storageData.clear();
+        storageData.putAll(dataMap);
+    }
+
+    /**
+     * Read and decode a storage or backup file in either the current or the legacy format.
+     * Current files are decrypted and decoded as a stream, so no whole-file copies are made
+     * besides the buffer the cipher needs to verify the GCM tag before releasing plaintext.
+     */
+    private Map<String, Object> readStorageFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer headerBuffer = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+            while (headerBuffer.hasRemaining() && channel.read(headerBuffer) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+
+            byte[] header = headerBuffer.array();
+            if (headerBuffer.hasRemaining() || !hasFileHeader(header)) {
+                // Legacy plain YAML is still the current format for unencrypted YAML stores
+                lastReadCodec = useEncryption ? null : YamlStorageCodec.INSTANCE;
+                return readLegacyStorageFile(Files.readAllBytes(path));
+            }
+
+            int version = header[FILE_MAGIC.length] & 0xFF;
+            if (version != FILE_FORMAT_VERSION) {
+                throw new StorageException("Unsupported storage file version " + version + ": " + path);
+            }
+            StorageCodec fileCodec = StorageCodec.forId(header[FILE_MAGIC.length + 1] & 0xFF);
+            int flags = header[FILE_MAGIC.length + 2];
+            boolean encrypted = (flags & FLAG_ENCRYPTED) != 0;
+            boolean storeKey = (flags & FLAG_STORE_KEY) != 0;
+            if (encrypted != useEncryption) {
+                throw new StorageException("Storage file encryption does not match its store: " + path);
+            }
+
+            InputStream body = Channels.newInputStream(channel);
+            if (encrypted) {
+                // The header is authenticated along with the data, so the codec id cannot be swapped
+                body = EncryptionUtils.decryptFrom(body, header, storeKey ? encryptionKey : masterKey);
+            }
+
+            logger.logDebug("Reading " + path.getFileName() + " with codec: " + fileCodec.getName());
+            Map<String, Object> data = fileCodec.decode(new BufferedInputStream(body, STREAM_BUFFER_SIZE));
+            // Files sealed with the master key count as legacy and get rewritten with the store key
+            lastReadCodec = encrypted && !storeKey ? null : fileCodec;
+            return data;
+        }
+    }
+
+    /**
+     * Read a file written before storage files had a header.
+     */
+    private Map<String, Object> readLegacyStorageFile(byte[] fileContent) {
+        String yamlContent = new String(fileContent, StandardCharsets.UTF_8);
 
         if (useEncryption) {
-            // Decrypt the content if encryption is enabled
-            yamlContent = EncryptionUtils.decrypt(fileContent, encryptionKey);
+            // Older versions encrypted every store with the master key itself
+            yamlContent = EncryptionUtils.decrypt(yamlContent, masterKey);
             if (yamlContent == null) {
                 throw new StorageException("Failed to decrypt storage file");
             }
-        } else {
-            // Use content directly if unencrypted
-            yamlContent = fileContent;
         }
 
-        // Parse YAML content
-        Object loadedData = yaml.load(yamlContent);
-        storageData.clear();
+        return YamlStorageCodec.INSTANCE.decode(new ByteArrayInputStream(yamlContent.getBytes(StandardCharsets.UTF_8)));
+    }
 
-        if (loadedData instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> dataMap = (Map<String, Object>) loadedData;
-            storageData.putAll(dataMap);
-        } else if (loadedData != null) {
-            logger.logWarning("Unexpected data format in storage file, creating new storage");
+    private static boolean hasFileHeader(byte[] content) {
+        if (content.length < FILE_HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < FILE_MAGIC.length; i++) {
+            if (content[i] != FILE_MAGIC[i]) {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
      * Attempt to recover from backup file.
+     *
+     * @return true if data was restored from the backup and should be written back to the main file
      */
-    private void attemptRecoveryFromBackup() {
+    private boolean attemptRecoveryFromBackup() {
         logger.logInfo("Attempting to recover from backup file...");
 
         try {
             if (Files.exists(backupFilePath)) {
-                String backupContent = Files.readString(backupFilePath);
-                String yamlContent;
-
-                if (useEncryption) {
-                    // Decrypt the backup if encryption is enabled
-                    yamlContent = EncryptionUtils.decrypt(backupContent, encryptionKey);
-                    if (yamlContent == null) {
-                        throw new StorageException("Failed to decrypt backup file");
-                    }
-                } else {
-                    // Use content directly if unencrypted
-                    yamlContent = backupContent;
-                }
-
-                Object backupData = yaml.load(yamlContent);
+                Map<String, Object> backupData = readStorageFile(backupFilePath);
                 storageData.clear();
-
-                if (backupData instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> dataMap = (Map<String, Object>) backupData;
-                    storageData.putAll(dataMap);
-                }
+                storageData.putAll(backupData);
 
                 logger.logInfo("Successfully recovered from backup file");
-                saveData(); // Save recovered data to main file
-                return;
+                lastModified = System.currentTimeMillis();
+                return true;
             }
 
             logger.logWarning("No valid backup found, starting with empty storage");
@@ -329,52 +499,408 @@ public class StorageManager {
         }
 
         lastModified = System.currentTimeMillis();
+        return false;
     }
 
     /**
      * Save data to YAML file (encrypted or unencrypted based on configuration).
+     * Does nothing if the file already holds the current data.
      */
     public void saveData() {
         if (!initialized) {
             throw new StorageException("StorageManager not initialized");
         }
 
-        storageLock.readLock().lock();
+        if (loadFailed) {
+            // Writing now would replace the unreadable file, and rotate it over the backup, with what is in memory
+            logger.logWarning("Not saving " + storageFileName + ": it could not be loaded, changes are kept in memory only");
+            return;
+        }
+
+        if (journal != null) {
+            // Journaled changes are already on disk; only unjournaled ones (auto-save off) need a compaction
+            if (!isDirty() && Files.exists(storageFilePath)) {
+                logger.logDebug("Storage journal up to date, skipping save: " + storageFileName);
+                return;
+            }
+            compact();
+            return;
+        }
+
+        // Saves are serialized among themselves but never block readers or writers:
+        // the data written is the immutable snapshot taken when the save starts
+        saveLock.lock();
         try {
-            logger.logDebug("Saving storage data to: " + storageFilePath);
+            Snapshot toSave = snapshot;
+            if (toSave.getVersion() == savedVersion && Files.exists(storageFilePath)) {
+                logger.logDebug("Storage unchanged since last save, skipping: " + storageFileName);
+                return;
+            }
 
-            ensureAppDataDirectoryExists();
-            createBackupIfExists();
+            writeStorageFile(toSave);
+            savedVersion = toSave.getVersion();
 
-            String yamlContent = yaml.dump(new HashMap<>(storageData));
-            String contentToWrite;
+        } catch (Exception e) {
+            logger.logError("Failed to save storage data", e);
+            throw new StorageException("Failed to save storage data", e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
 
-            if (useEncryption) {
-                // Encrypt the content if encryption is enabled
-                contentToWrite = EncryptionUtils.encrypt(yamlContent, encryptionKey);
-                if (contentToWrite == null) {
-                    throw new StorageException("Failed to encrypt storage data");
+    /**
+     * Write a snapshot to the storage file, keeping a backup of the previous one. Must be called while holding the save lock.
+     */
+    private void writeStorageFile(Snapshot toSave) throws IOException {
+        logger.logDebug("Saving storage data to: " + storageFilePath);
+
+        ensureAppDataDirectoryExists();
+        createBackupIfExists();
+
+        StorageCodec fileCodec = codec;
+
+        // Write to temporary file first, then rename for atomic operation.
+        // The data is encoded and encrypted on the fly, never held as a whole in memory.
+        try (OutputStream file = Files.newOutputStream(tempFilePath)) {
+            OutputStream out = file;
+            if (useEncryption || fileCodec != YamlStorageCodec.INSTANCE) {
+                // Plain YAML stays headerless so unencrypted settings remain editable by hand
+                byte[] header = createFileHeader(fileCodec, useEncryption);
+                file.write(header);
+                if (useEncryption) {
+                    // Encrypt the content if encryption is enabled
+                    out = EncryptionUtils.encryptTo(file, header, encryptionKey);
                 }
-            } else {
-                // Use content directly if unencrypted
-                contentToWrite = yamlContent;
             }
 
-            // Write to temporary file first, then rename for atomic operation
-            Files.writeString(tempFilePath, contentToWrite);
-            Files.move(tempFilePath, storageFilePath, StandardCopyOption.REPLACE_EXISTING);
+            // Closing finishes the cipher, which appends the tag
+            try (OutputStream buffered = new BufferedOutputStream(out, STREAM_BUFFER_SIZE)) {
+                fileCodec.encode(toSave.getData(), buffered);
+            }
+        }
+
+        // Make the new file durable before it replaces the old one; compaction drops journal records right after
+        try (FileChannel channel = FileChannel.open(tempFilePath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempFilePath, storageFilePath, StandardCopyOption.REPLACE_EXISTING);
 
-            updateLastModified();
-            logger.logInfo("Storage data saved successfully: " + storageData.size() + " entries");
+        updateLastModified();
+        logger.logInfo("Storage data saved successfully: " + toSave.size() + " entries");
+    }
+
+    private static byte[] createFileHeader(StorageCodec fileCodec, boolean encrypted) {
+        byte[] header = new byte[FILE_HEADER_LENGTH];
+        System.arraycopy(FILE_MAGIC, 0, header, 0, FILE_MAGIC.length);
+        header[FILE_MAGIC.length] = (byte) FILE_FORMAT_VERSION;
+        header[FILE_MAGIC.length + 1] = (byte) fileCodec.getId();
+        header[FILE_MAGIC.length + 2] = (byte) (encrypted ? FLAG_ENCRYPTED | FLAG_STORE_KEY : 0);
+        return header;
+    }
 
+    /**
+     * Persist after a mutation: append to the journal, or save immediately or through the flusher
+     * when write-behind is enabled. Must be called while holding the write lock, after publishing the snapshot.
+     *
+     * @param changedKeys the keys touched by the mutation, or null if the whole storage was replaced
+     */
+    private void persistAfterMutation(Collection<String> changedKeys) {
+        StorageJournal current = journal;
+        if (current != null) {
+            appendToJournal(current, changedKeys);
+        } else if (writeBehindDelayMs > 0) {
+            scheduleFlush();
+        } else {
+            saveData();
+        }
+    }
+
+    /**
+     * Schedule a flush unless one is already pending. All mutations until it runs are written by that one save.
+     */
+    private void scheduleFlush() {
+        synchronized (flushMonitor) {
+            if (scheduledFlush == null) {
+                scheduledFlush = FLUSHER.schedule(this::runScheduledFlush, writeBehindDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void runScheduledFlush() {
+        CompletableFuture<Void> waiting;
+        synchronized (flushMonitor) {
+            scheduledFlush = null;
+            waiting = pendingFlush;
+            pendingFlush = null;
+        }
+
+        try {
+            saveData();
+            if (waiting != null) {
+                waiting.complete(null);
+            }
         } catch (Exception e) {
-            logger.logError("Failed to save storage data", e);
-            throw new StorageException("Failed to save storage data", e);
+            logger.logError("Write-behind flush failed for: " + storageFileName, e);
+            if (waiting != null) {
+                waiting.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Write any pending changes now, on the calling thread. Use on shutdown.
+     */
+    public void flush() {
+        StorageJournal current = journal;
+        if (current != null) {
+            try {
+                current.sync();
+            } catch (IOException e) {
+                throw new StorageException("Failed to sync storage journal", e);
+            }
+        }
+
+        CompletableFuture<Void> waiting;
+        synchronized (flushMonitor) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            waiting = pendingFlush;
+            pendingFlush = null;
+        }
+
+        try {
+            saveData();
+            if (waiting != null) {
+                waiting.complete(null);
+            }
+        } catch (RuntimeException e) {
+            if (waiting != null) {
+                waiting.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a future that completes once every change made so far is on disk.
+     * In write-behind mode this joins the next scheduled flush instead of forcing an extra save.
+     *
+     * @return a future completed with null on success, or exceptionally if the save failed
+     */
+    public CompletableFuture<Void> flushAsync() {
+        if (!isDirty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (flushMonitor) {
+            if (pendingFlush == null) {
+                pendingFlush = new CompletableFuture<>();
+            }
+            CompletableFuture<Void> future = pendingFlush;
+            if (writeBehindDelayMs > 0) {
+                scheduleFlush();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = FLUSHER.schedule(this::runScheduledFlush, 0, TimeUnit.MILLISECONDS);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Check whether there are changes that have not been written yet.
+     *
+     * @return true if the in-memory data is newer than the file
+     */
+    public boolean isDirty() {
+        return snapshot.getVersion() != savedVersion;
+    }
+
+    /**
+     * Enable or disable write-behind mode. When enabled, mutations with auto-save on only mark the
+     * storage dirty and a shared flusher thread writes it at most once per debounce window.
+     *
+     * @param debounceMs the debounce window in milliseconds, or 0 to save synchronously on every mutation
+     */
+    public void setWriteBehind(long debounceMs) {
+        long previous = writeBehindDelayMs;
+        this.writeBehindDelayMs = Math.max(0, debounceMs);
+        logger.logDebug("Write-behind for " + storageFileName + ": " + (writeBehindDelayMs > 0 ? writeBehindDelayMs + " ms" : "disabled"));
+
+        if (previous > 0 && writeBehindDelayMs == 0 && isDirty()) {
+            flush();
+        }
+    }
+
+    /**
+     * @return the write-behind debounce window in milliseconds, 0 if disabled
+     */
+    public long getWriteBehindDelayMs() {
+        return writeBehindDelayMs;
+    }
+
+    /**
+     * Write the changes of one mutation to the journal as a single record, and start a compaction
+     * in the background once the journal grows past its limits.
+     */
+    private void appendToJournal(StorageJournal current, Collection<String> changedKeys) {
+        Snapshot published = snapshot;
+        List<Map<String, Object>> operations = new ArrayList<>();
+        if (changedKeys == null) {
+            operations.add(StorageJournal.clearOperation());
+            for (Map.Entry<String, Object> entry : published.getData().entrySet()) {
+                operations.add(StorageJournal.putOperation(entry.getKey(), entry.getValue()));
+            }
+        } else {
+            for (String key : changedKeys) {
+                Object value = published.get(key);
+                operations.add(value == null ? StorageJournal.removeOperation(key) : StorageJournal.putOperation(key, value));
+            }
+        }
+
+        try {
+            current.append(operations);
+            savedVersion = published.getVersion();
+        } catch (IOException e) {
+            logger.logError("Failed to append to storage journal", e);
+            throw new StorageException("Failed to append to storage journal", e);
+        }
+
+        if (current.getSize() >= journalMaxBytes || current.getRecordCount() >= journalMaxRecords) {
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        FLUSHER.execute(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                logger.logError("Background journal compaction failed for: " + storageFileName, e);
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Rewrite the storage file from the current data and drop the journal records it now contains.
+     * Mutations are blocked only while the journal is rotated, not while the file is written.
+     * Without a journal this is the same as {@link #saveData()}.
+     */
+    public void compact() {
+        StorageJournal current = journal;
+        if (current == null) {
+            saveData();
+            return;
+        }
+
+        compactLock.lock();
+        try {
+            Snapshot toSave;
+            storageLock.writeLock().lock();
+            try {
+                toSave = snapshot;
+                if (!current.rotate()) {
+                    logger.logWarning("Previous journal compaction did not finish, compacting without rotating: " + storageFileName);
+                }
+            } finally {
+                storageLock.writeLock().unlock();
+            }
+
+            saveLock.lock();
+            try {
+                writeStorageFile(toSave);
+                if (toSave.getVersion() > savedVersion) {
+                    savedVersion = toSave.getVersion();
+                }
+            } finally {
+                saveLock.unlock();
+            }
+
+            // The file just written covers every record of the rotated journal
+            current.discardRotated();
+            logger.logDebug("Storage journal compacted: " + storageFileName);
+
+        } catch (Exception e) {
+            logger.logError("Failed to compact storage journal", e);
+            throw new StorageException("Failed to compact storage journal", e);
         } finally {
-            storageLock.readLock().unlock();
+            compactLock.unlock();
         }
     }
 
+    /**
+     * Switch this storage to journaled mode: every mutation is appended as one record to a journal
+     * next to the storage file instead of rewriting the whole file, and the file is rewritten in the
+     * background once the journal passes either limit. An existing storage file becomes the base
+     * snapshot on the first load. Must be called before {@link #loadData()}. Takes precedence over write-behind.
+     *
+     * @param maxBytes journal size that triggers a compaction
+     * @param maxRecords journal record count that triggers a compaction
+     */
+    public void enableJournal(long maxBytes, long maxRecords) {
+        if (journal != null) {
+            return;
+        }
+        if (!initialized) {
+            throw new StorageException("StorageManager not initialized");
+        }
+        if (dataLoaded) {
+            throw new StorageException("Journal must be enabled before loading data: " + storageFileName);
+        }
+
+        this.journalMaxBytes = Math.max(1, maxBytes);
+        this.journalMaxRecords = Math.max(1, maxRecords);
+        this.journal = new StorageJournal(
+                Paths.get(APP_STORAGE_DIR, storageFileName + JOURNAL_FILE_EXTENSION),
+                Paths.get(APP_STORAGE_DIR, storageFileName + ROTATED_JOURNAL_FILE_EXTENSION),
+                storageFileName,
+                useEncryption ? encryptionKey : null,
+                codec);
+        logger.logDebug("Journal enabled for " + storageFileName + " (compact at " + journalMaxBytes + " bytes or " + journalMaxRecords + " records)");
+    }
+
+    /**
+     * Check if this storage appends mutations to a journal.
+     *
+     * @return true if journaled
+     */
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
+    /**
+     * Set the codec used for future saves. Files are read with whatever codec wrote them,
+     * so switching only takes effect when the file is next written, which is forced on the next save.
+     *
+     * @param codec the codec to write with
+     */
+    public void setCodec(StorageCodec codec) {
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
+        if (this.codec == codec) {
+            return;
+        }
+
+        this.codec = codec;
+        savedVersion = -1;
+        logger.logDebug("Codec for " + storageFileName + " set to: " + codec.getName());
+    }
+
+    /**
+     * @return the codec used for saves
+     */
+    public StorageCodec getCodec() {
+        return codec;
+    }
+
     /**
      * Create backup of existing storage file.
      */
@@ -392,6 +918,113 @@ public class StorageManager {
         lastModified = System.currentTimeMillis();
     }
 
+    /**
+     * Publish an immutable copy of the current data under a new version and work out what changed.
+     * Must be called while holding the write lock, after every mutation.
+     *
+     * @param changedKeys the keys touched by the mutation, or null to compare every key
+     * @return the change events for listeners, empty if nothing actually changed
+     */
+    private List<ChangeEvent> publishSnapshot(Collection<String> changedKeys) {
+        Snapshot previous = snapshot;
+        Map<String, Object> frozen;
+        if (changedKeys == null) {
+            frozen = freezeMap(storageData);
+        } else {
+            // Untouched keys keep their already-frozen values from the previous snapshot
+            frozen = new LinkedHashMap<>(previous.getData());
+            for (String key : changedKeys) {
+                Object value = storageData.get(key);
+                if (value == null) {
+                    frozen.remove(key);
+                } else {
+                    frozen.put(key, freezeValue(value));
+                }
+            }
+            frozen = Collections.unmodifiableMap(frozen);
+        }
+
+        Snapshot next = new Snapshot(++snapshotVersion, frozen);
+        snapshot = next;
+
+        if (listeners.isEmpty()) {
+            return List.of();
+        }
+
+        Collection<String> keys = changedKeys;
+        if (keys == null) {
+            Set<String> allKeys = new LinkedHashSet<>(previous.getData().keySet());
+            allKeys.addAll(frozen.keySet());
+            keys = allKeys;
+        }
+
+        List<ChangeEvent> changes = new ArrayList<>();
+        for (String key : keys) {
+            Object oldValue = previous.get(key);
+            Object newValue = next.get(key);
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+
+            ChangeType type = oldValue == null ? ChangeType.ADDED
+                    : newValue == null ? ChangeType.REMOVED
+                    : ChangeType.UPDATED;
+            changes.add(new ChangeEvent(this, type, key, oldValue, newValue, next.getVersion()));
+        }
+        return changes;
+    }
+
+    /**
+     * Queue change events with every subscriber. Must be called while holding the write lock,
+     * right after publishing the snapshot, so batches are queued in the order of their versions.
+     */
+    private void queueChanges(List<ChangeEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : listeners) {
+            subscription.enqueue(changes);
+        }
+    }
+
+    /**
+     * Start delivering queued change events. Called after the write lock has been released,
+     * so listeners running inline never hold it.
+     */
+    private void dispatchChanges(List<ChangeEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : listeners) {
+            subscription.scheduleDrain();
+        }
+    }
+
+    /**
+     * Deep-copy a map into unmodifiable maps and lists so snapshot readers cannot see later in-place edits.
+     */
+    private static Map<String, Object> freezeMap(Map<?, ?> source) {
+        Map<String, Object> copy = new LinkedHashMap<>(Math.max(16, source.size() * 2));
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            copy.put(String.valueOf(entry.getKey()), freezeValue(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Object freezeValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return freezeMap(map);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(freezeValue(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
     // Public API methods
 
     /**
@@ -404,18 +1037,22 @@ public class StorageManager {
     public <T> void put(String key, T value) {
         validateKey(key);
 
+        List<ChangeEvent> changes = List.of();
         storageLock.writeLock().lock();
         try {
             storageData.put(key, value);
             updateLastModified();
+            changes = publishSnapshot(List.of(key));
+            queueChanges(changes);
 
             if (autoSave) {
-                saveData();
+                persistAfterMutation(List.of(key));
             }
 
             logger.logDebug("Stored value for key: " + key);
         } finally {
             storageLock.writeLock().unlock();
+            dispatchChanges(changes);
         }
     }
 
@@ -487,19 +1124,23 @@ public class StorageManager {
     public <T> T remove(String key) {
         validateKey(key);
 
+        List<ChangeEvent> changes = List.of();
         storageLock.writeLock().lock();
         try {
             Object removed = storageData.remove(key);
             updateLastModified();
+            changes = publishSnapshot(List.of(key));
+            queueChanges(changes);
 
             if (autoSave) {
-                saveData();
+                persistAfterMutation(List.of(key));
             }
 
             logger.logDebug("Removed value for key: " + key);
             return (T) removed;
         } finally {
             storageLock.writeLock().unlock();
+            dispatchChanges(changes);
         }
     }
 
@@ -507,18 +1148,22 @@ public class StorageManager {
      * Clear all stored data.
      */
     public void clear() {
+        List<ChangeEvent> changes = List.of();
         storageLock.writeLock().lock();
         try {
             storageData.clear();
             updateLastModified();
+            changes = publishSnapshot(null);
+            queueChanges(changes);
 
             if (autoSave) {
-                saveData();
+                persistAfterMutation(null);
             }
 
             logger.logInfo("Storage cleared");
         } finally {
             storageLock.writeLock().unlock();
+            dispatchChanges(changes);
         }
     }
 
@@ -574,6 +1219,7 @@ public class StorageManager {
             return;
         }
 
+        List<ChangeEvent> changes = List.of();
         storageLock.writeLock().lock();
         try {
             for (Map.Entry<String, Object> entry : data.entrySet()) {
@@ -582,14 +1228,17 @@ public class StorageManager {
             }
 
             updateLastModified();
+            changes = publishSnapshot(data.keySet());
+            queueChanges(changes);
 
             if (autoSave) {
-                saveData();
+                persistAfterMutation(data.keySet());
             }
 
             logger.logDebug("Stored " + data.size() + " values in batch");
         } finally {
             storageLock.writeLock().unlock();
+            dispatchChanges(changes);
         }
     }
 
@@ -607,6 +1256,45 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Get the current immutable snapshot of all stored data.
+     * Takes no lock and copies nothing, so it is cheap enough to call on every daemon tick.
+     *
+     * @return the latest published snapshot
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the version of the current snapshot. The version increases by one on every mutation,
+     * so comparing it with a remembered value tells whether anything changed.
+     *
+     * @return the current snapshot version
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * Subscribe to changes of this storage. Each mutation is delivered as one batch of events,
+     * in mutation order, on the given executor. Mutations that leave a value unchanged produce no events.
+     *
+     * @param listener the callback receiving change batches
+     * @param executor where the callback runs (e.g. Platform::runLater for UI code, Runnable::run to run inline)
+     * @return a subscription that can be cancelled to stop receiving events
+     */
+    public Subscription subscribe(ChangeListener listener, Executor executor) {
+        if (listener == null || executor == null) {
+            throw new IllegalArgumentException("Listener and executor cannot be null");
+        }
+
+        Subscription subscription = new Subscription(listener, executor);
+        listeners.add(subscription);
+        logger.logDebug("Change listener subscribed to: " + storageFileName);
+        return subscription;
+    }
+
     /**
      * Set auto-save mode.
      *
@@ -673,6 +1361,194 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Immutable, versioned view of the storage contents at one point in time.
+     * Nested maps and lists are unmodifiable copies as well.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyMap());
+
+        private final long version;
+        private final Map<String, Object> data;
+
+        Snapshot(long version, Map<String, Object> data) {
+            this.version = version;
+            this.data = data;
+        }
+
+        /**
+         * @return the version this snapshot was published under
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the unmodifiable data of this snapshot
+         */
+        public Map<String, Object> getData() {
+            return data;
+        }
+
+        /**
+         * @param key the storage key
+         * @return the value stored under key, or null
+         */
+        public Object get(String key) {
+            return data.get(key);
+        }
+
+        public int size() {
+            return data.size();
+        }
+    }
+
+    /**
+     * Kind of change made to a single key.
+     */
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        UPDATED
+    }
+
+    /**
+     * A change to one key. Old and new values come from the immutable snapshots before and after the mutation.
+     */
+    public static final class ChangeEvent {
+        private final StorageManager source;
+        private final ChangeType type;
+        private final String key;
+        private final Object oldValue;
+        private final Object newValue;
+        private final long version;
+
+        ChangeEvent(StorageManager source, ChangeType type, String key, Object oldValue, Object newValue, long version) {
+            this.source = source;
+            this.type = type;
+            this.key = key;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.version = version;
+        }
+
+        public StorageManager getSource() {
+            return source;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the value before the change, or null for ADDED
+         */
+        public Object getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return the value after the change, or null for REMOVED
+         */
+        public Object getNewValue() {
+            return newValue;
+        }
+
+        /**
+         * @return the snapshot version that contains this change
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeEvent{" + type + " '" + key + "' @" + version + "}";
+        }
+    }
+
+    /**
+     * Receives batches of change events from a StorageManager.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        void onChanges(List<ChangeEvent> changes);
+    }
+
+    /**
+     * A listener registration. Batches are queued per subscription and drained one at a time,
+     * so a listener sees changes in order even on a multi-threaded executor.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final ChangeListener listener;
+        private final Executor executor;
+        private final Queue<List<ChangeEvent>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean cancelled;
+
+        private Subscription(ChangeListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        private void enqueue(List<ChangeEvent> changes) {
+            if (cancelled) {
+                return;
+            }
+            pending.add(changes);
+        }
+
+        private void scheduleDrain() {
+            if (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (Exception e) {
+                    draining.set(false);
+                    logger.logError("Failed to dispatch storage change events for: " + storageFileName, e);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                List<ChangeEvent> changes;
+                while (!cancelled && (changes = pending.poll()) != null) {
+                    try {
+                        listener.onChanges(changes);
+                    } catch (Exception e) {
+                        logger.logError("Storage change listener failed for: " + storageFileName, e);
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // A batch may have arrived after the loop ended but before the flag was cleared
+            scheduleDrain();
+        }
+
+        /**
+         * Stop receiving events. Batches already queued are dropped.
+         */
+        public void cancel() {
+            cancelled = true;
+            pending.clear();
+            listeners.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+    }
+
     /**
      * Custom exception for storage-related errors.
      */
@@ -0,0 +1,87 @@
+package me.ghosthacks96.ghostsecure.utils.file_handlers;
+
+import me.ghosthacks96.ghostsecure.Main;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.representer.Representer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Human-readable codec writing block-style YAML. Also reads the headerless files of older versions.
+ */
+public final class YamlStorageCodec implements StorageCodec {
+
+    public static final String NAME = "yaml";
+    public static final int ID = 1;
+    public static final YamlStorageCodec INSTANCE = new YamlStorageCodec();
+
+    // Yaml instances are not thread-safe, access is synchronized on this codec
+    private final Yaml yaml;
+
+    private YamlStorageCodec() {
+        this.yaml = createYamlInstance();
+    }
+
+    /**
+     * Create a properly configured YAML instance.
+     */
+    private static Yaml createYamlInstance() {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setPrettyFlow(true);
+        options.setIndent(2);
+        options.setCanonical(false);
+        options.setExplicitStart(false);
+        options.setExplicitEnd(false);
+
+        Representer representer = new Representer(options);
+        representer.getPropertyUtils().setSkipMissingProperties(true);
+
+        return new Yaml(representer, options);
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Map<String, Object> data, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        synchronized (this) {
+            yaml.dump(new LinkedHashMap<>(data), writer);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public Map<String, Object> decode(InputStream in) {
+        Object loadedData;
+        synchronized (this) {
+            loadedData = yaml.load(in);
+        }
+
+        Map<String, Object> dataMap = new LinkedHashMap<>();
+        if (loadedData instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                dataMap.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+        } else if (loadedData != null) {
+            Main.logger.logWarning("Unexpected data format in storage file, creating new storage");
+        }
+        return dataMap;
+    }
+}
@@ -0,0 +1,76 @@
+package me.ghosthacks96.ghostsecure.utils.services;
+
+/**
+ * Interval policy for an enforcement task that should react quickly while something is happening
+ * and back off while nothing is.
+ *
+ * After {@link #boost()} the interval stays at the floor for the burst window. Once the window has
+ * passed, each run grows the interval by the backoff factor until it reaches the ceiling.
+ */
+public class AdaptiveInterval {
+
+    private static final double BACKOFF_FACTOR = 1.5;
+
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final long burstWindowMs;
+
+    private volatile long currentIntervalMs;
+    private volatile long burstUntil;
+
+    /**
+     * @param minIntervalMs the interval used during a burst
+     * @param maxIntervalMs the interval approached while idle
+     * @param burstWindowMs how long a burst lasts after the last boost
+     */
+    public AdaptiveInterval(long minIntervalMs, long maxIntervalMs, long burstWindowMs) {
+        if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException("Invalid interval bounds: " + minIntervalMs + ".." + maxIntervalMs);
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.burstWindowMs = Math.max(0, burstWindowMs);
+        this.currentIntervalMs = minIntervalMs;
+    }
+
+    /**
+     * Drop to the minimum interval and hold it for the burst window.
+     */
+    public void boost() {
+        burstUntil = System.currentTimeMillis() + burstWindowMs;
+        currentIntervalMs = minIntervalMs;
+    }
+
+    /**
+     * Compute the delay before the next run and advance the backoff.
+     *
+     * @return the delay in milliseconds
+     */
+    public long nextIntervalMs() {
+        if (System.currentTimeMillis() < burstUntil) {
+            currentIntervalMs = minIntervalMs;
+        } else {
+            currentIntervalMs = Math.min(maxIntervalMs, Math.max(minIntervalMs + 1, (long) (currentIntervalMs * BACKOFF_FACTOR)));
+        }
+        return currentIntervalMs;
+    }
+
+    /**
+     * @return true while a burst window is active
+     */
+    public boolean isBursting() {
+        return System.currentTimeMillis() < burstUntil;
+    }
+
+    public long getCurrentIntervalMs() {
+        return currentIntervalMs;
+    }
+
+    public long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    public long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+}
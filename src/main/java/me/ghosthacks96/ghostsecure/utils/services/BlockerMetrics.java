@@ -0,0 +1,151 @@
+package me.ghosthacks96.ghostsecure.utils.services;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide metrics registry for the blocker daemon.
+ * Counters are {@link LongAdder}s and latencies go into fixed-bucket {@link LatencyHistogram}s,
+ * so recording from the enforcement threads never takes a lock.
+ */
+public class BlockerMetrics {
+
+    // Counters
+    public static final String PROCESSES_SCANNED = "programs.processes_scanned";
+    public static final String PROCESSES_EVALUATED = "programs.processes_evaluated";
+    public static final String PROGRAM_MATCHES = "programs.matches";
+    public static final String KILLS_TERMINATED = "programs.kills.terminated";
+    public static final String KILLS_ALREADY_EXITED = "programs.kills.already_exited";
+    public static final String KILLS_TIMED_OUT = "programs.kills.timed_out";
+    public static final String KILLS_FAILED = "programs.kills.failed";
+    public static final String FOLDERS_PROCESSED = "folders.processed";
+    public static final String FOLDERS_UNCHANGED = "folders.unchanged";
+    public static final String WATCH_EVENTS = "folders.watch.events";
+    public static final String WATCH_OVERFLOWS = "folders.watch.overflows";
+    public static final String PATHS_PROCESSED = "folders.paths_processed";
+    public static final String TICKS_SKIPPED_PREFIX = "ticks.skipped.";
+    public static final String TICKS_OVERRUN_PREFIX = "ticks.overrun.";
+
+    // Histograms
+    public static final String TICK_DURATION_PREFIX = "ticks.duration.";
+    public static final String KILL_CONFIRM_LATENCY = "programs.kill_confirm_latency";
+
+    private static final BlockerMetrics INSTANCE = new BlockerMetrics();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private volatile Instant since = Instant.now();
+
+    /**
+     * @return the shared registry
+     */
+    public static BlockerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add to a counter, creating it on first use.
+     */
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Add one to a counter, creating it on first use.
+     */
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * Record a latency observation, creating the histogram on first use.
+     */
+    public void recordNanos(String name, long nanos) {
+        histograms.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public void reset() {
+        counters.clear();
+        histograms.clear();
+        since = Instant.now();
+    }
+
+    /**
+     * Take a point-in-time copy of every counter and histogram.
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, adder) -> counterValues.put(name, adder.sum()));
+
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+
+        return new Snapshot(since, Instant.now(), counterValues, histogramValues);
+    }
+
+    /**
+     * Immutable copy of the registry.
+     */
+    public static final class Snapshot {
+        private final Instant since;
+        private final Instant takenAt;
+        private final Map<String, Long> counters;
+        private final Map<String, LatencyHistogram.Snapshot> histograms;
+
+        Snapshot(Instant since, Instant takenAt, Map<String, Long> counters, Map<String, LatencyHistogram.Snapshot> histograms) {
+            this.since = since;
+            this.takenAt = takenAt;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        public Instant getSince() {
+            return since;
+        }
+
+        public Instant getTakenAt() {
+            return takenAt;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+            return histograms;
+        }
+
+        public long getCounter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        public LatencyHistogram.Snapshot getHistogram(String name) {
+            return histograms.get(name);
+        }
+
+        /**
+         * Render the snapshot as plain text, one metric per line.
+         */
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("# GhostSecure blocker metrics\n");
+            sb.append("# since: ").append(since).append('\n');
+            sb.append("# taken: ").append(takenAt).append('\n');
+            counters.forEach((name, value) -> sb.append(name).append(" = ").append(value).append('\n'));
+            histograms.forEach((name, value) -> sb.append(name).append(" : ").append(value).append('\n'));
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return toText();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package me.ghosthacks96.ghostsecure.utils.services;
+
+import me.ghosthacks96.ghostsecure.Main;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One periodic enforcement job of the blocker daemon (program checks or folder checks).
+ * Each job runs on its own schedule so a slow job never delays another one.
+ *
+ * A run is skipped if the previous run of the same job is still in progress, and a run that takes
+ * longer than the period is counted as an overrun and logged (at most once per minute).
+ *
+ * With an {@link AdaptiveInterval} the task reschedules itself after every run; a run that reports
+ * activity (its body returns true) boosts the interval down to the policy's floor.
+ */
+public class EnforcementTask implements Runnable {
+
+    private static final long OVERRUN_LOG_INTERVAL_MS = 60_000;
+
+    private final String name;
+    private final BooleanSupplier body;
+    private final long periodMs;
+    private final AdaptiveInterval adaptiveInterval;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong skipCount = new AtomicLong();
+    private final AtomicLong overrunCount = new AtomicLong();
+    private volatile long lastDurationNanos;
+    private volatile long lastOverrunLogTime;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> future;
+    private boolean cancelled;
+
+    /**
+     * Creates a task that runs on a fixed period.
+     *
+     * @param name short name used in logs (e.g., "programs")
+     * @param body the enforcement work to run each period
+     * @param periodMs the period between runs in milliseconds
+     */
+    public EnforcementTask(String name, Runnable body, long periodMs) {
+        this(name, () -> {
+            body.run();
+            return false;
+        }, periodMs, null);
+    }
+
+    /**
+     * Creates a task whose period follows an adaptive policy.
+     *
+     * @param name short name used in logs (e.g., "programs")
+     * @param body the enforcement work; returns true if it saw activity that should speed up the next runs
+     * @param adaptiveInterval the interval policy
+     */
+    public EnforcementTask(String name, BooleanSupplier body, AdaptiveInterval adaptiveInterval) {
+        this(name, body, adaptiveInterval.getMaxIntervalMs(), adaptiveInterval);
+    }
+
+    private EnforcementTask(String name, BooleanSupplier body, long periodMs, AdaptiveInterval adaptiveInterval) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMs);
+        }
+        this.name = name;
+        this.body = body;
+        this.periodMs = periodMs;
+        this.adaptiveInterval = adaptiveInterval;
+    }
+
+    /**
+     * Start running this task on the given scheduler.
+     * Fixed-period runs are spaced by a fixed delay, so an overrun is followed by one normal run instead of a burst of catch-up runs.
+     */
+    public synchronized void schedule(ScheduledExecutorService scheduler) {
+        cancel();
+        this.scheduler = scheduler;
+        this.cancelled = false;
+        if (adaptiveInterval != null) {
+            future = scheduler.schedule(this, 0, TimeUnit.MILLISECONDS);
+            Main.logger.logDebug("Scheduled " + name + " enforcement every " + adaptiveInterval.getMinIntervalMs()
+                    + ".." + adaptiveInterval.getMaxIntervalMs() + " ms");
+        } else {
+            future = scheduler.scheduleWithFixedDelay(this, 0, periodMs, TimeUnit.MILLISECONDS);
+            Main.logger.logDebug("Scheduled " + name + " enforcement every " + periodMs + " ms");
+        }
+    }
+
+    /**
+     * Stop future runs. A run already in progress is interrupted.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (future != null && !future.isCancelled()) {
+            future.cancel(true);
+        }
+        future = null;
+    }
+
+    /**
+     * Switch an adaptive task to its fastest interval and run it as soon as possible.
+     * Has no effect on fixed-period tasks.
+     */
+    public synchronized void boost() {
+        if (adaptiveInterval == null) {
+            return;
+        }
+
+        adaptiveInterval.boost();
+        if (!cancelled && scheduler != null && future != null && !running.get()
+                && future.getDelay(TimeUnit.MILLISECONDS) > adaptiveInterval.getMinIntervalMs()) {
+            future.cancel(false);
+            future = scheduler.schedule(this, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (ServiceController.isShuttingDown()) {
+            Main.logger.logDebug("Shutdown requested, skipping " + name + " enforcement tick");
+            return;
+        }
+
+        if (!running.compareAndSet(false, true)) {
+            skipCount.incrementAndGet();
+            BlockerMetrics.get().increment(BlockerMetrics.TICKS_SKIPPED_PREFIX + name);
+            Main.logger.logDebug("Previous " + name + " enforcement tick still running, skipping");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean activity = false;
+        try {
+            activity = body.getAsBoolean();
+        } catch (Exception e) {
+            Main.logger.logError("Exception in " + name + " enforcement tick: " + e.getMessage(), e);
+        } finally {
+            lastDurationNanos = System.nanoTime() - start;
+            BlockerMetrics.get().recordNanos(BlockerMetrics.TICK_DURATION_PREFIX + name, lastDurationNanos);
+            runCount.incrementAndGet();
+            running.set(false);
+            checkOverrun();
+        }
+
+        if (adaptiveInterval != null) {
+            if (activity) {
+                adaptiveInterval.boost();
+            }
+            rescheduleAdaptive();
+        }
+    }
+
+    private synchronized void rescheduleAdaptive() {
+        if (cancelled || scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+
+        // Replacing rather than adding keeps a single chain of runs even if boost() raced with a run
+        if (future != null) {
+            future.cancel(false);
+        }
+        future = scheduler.schedule(this, adaptiveInterval.nextIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void checkOverrun() {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(lastDurationNanos);
+        if (durationMs <= getCurrentIntervalMs()) {
+            return;
+        }
+
+        overrunCount.incrementAndGet();
+        BlockerMetrics.get().increment(BlockerMetrics.TICKS_OVERRUN_PREFIX + name);
+        long now = System.currentTimeMillis();
+        if (now - lastOverrunLogTime > OVERRUN_LOG_INTERVAL_MS) {
+            lastOverrunLogTime = now;
+            Main.logger.logWarning("Enforcement task '" + name + "' took " + durationMs + " ms, longer than its "
+                    + getCurrentIntervalMs() + " ms period (" + overrunCount.get() + " overruns so far)");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPeriodMs() {
+        return periodMs;
+    }
+
+    /**
+     * @return the delay currently used between runs, which only differs from the period for adaptive tasks
+     */
+    public long getCurrentIntervalMs() {
+        return adaptiveInterval != null ? adaptiveInterval.getCurrentIntervalMs() : periodMs;
+    }
+
+    /**
+     * @return the adaptive policy, or null for a fixed-period task
+     */
+    public AdaptiveInterval getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getSkipCount() {
+        return skipCount.get();
+    }
+
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    public long getLastDurationNanos() {
+        return lastDurationNanos;
+    }
+}
@@ -0,0 +1,134 @@
+package me.ghosthacks96.ghostsecure.utils.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed bucket bounds.
+ * Recording is a bucket search over a dozen bounds plus a few atomic increments, cheap enough for every tick.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds (inclusive) in microseconds; the final bucket catches everything larger
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000, 10_000_000
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record one observation.
+     *
+     * @param nanos the observed latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Take a point-in-time copy. Buckets are read one by one, so a snapshot taken while
+     * other threads record may be off by the observations made during the copy.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.sum(), totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+        private final long[] bucketCounts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] bucketCounts, long count, long totalNanos, long maxNanos) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Estimate a percentile as the upper bound of the bucket that contains it.
+         *
+         * @param percentile a value between 0 and 100
+         * @return the estimated latency in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= target) {
+                    return i < BUCKET_BOUNDS_MICROS.length
+                            ? Math.min(maxNanos, TimeUnit.MICROSECONDS.toNanos(BUCKET_BOUNDS_MICROS[i]))
+                            : maxNanos;
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * @return count per bucket, the last entry being the overflow bucket
+         */
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+
+        /**
+         * @return the bucket upper bounds in microseconds (the overflow bucket has none)
+         */
+        public static long[] getBucketBoundsMicros() {
+            return BUCKET_BOUNDS_MICROS.clone();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                    count,
+                    getMeanNanos() / 1e6,
+                    getPercentileNanos(50) / 1e6,
+                    getPercentileNanos(99) / 1e6,
+                    maxNanos / 1e6);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package me.ghosthacks96.ghostsecure.utils.services;
 
 import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.services.extras.FolderAclEngine;
 import me.ghosthacks96.ghostsecure.utils.services.extras.FolderManager;
+import me.ghosthacks96.ghostsecure.utils.services.extras.ProcessHandleSource;
+import me.ghosthacks96.ghostsecure.utils.services.extras.ProcessTerminator;
 import me.ghosthacks96.ghostsecure.utils.services.extras.ProgramManager;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -16,9 +24,18 @@ public class ServiceController {
     private static final AtomicBoolean isRunning = new AtomicBoolean(false);
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 5;
     private static final int RESTART_DELAY_MS = 100;
+    private static final long DEFAULT_KILL_CONFIRM_TIMEOUT_MS = 2000;
+    private static final long DEFAULT_PROGRAM_CHECK_MIN_INTERVAL_MS = 100;
+    private static final long DEFAULT_PROGRAM_CHECK_MAX_INTERVAL_MS = 1000;
+    private static final long DEFAULT_PROGRAM_CHECK_BURST_WINDOW_MS = 10_000;
+    private static final long DEFAULT_FOLDER_CHECK_INTERVAL_MS = 1000;
+    private static final long DEFAULT_METRICS_DUMP_INTERVAL_MS = 60_000;
+    private static final String METRICS_FILE = "metrics.txt";
 
     private static ScheduledExecutorService scheduler;
-    private static ScheduledFuture<?> blockerTask;
+    private static EnforcementTask programTask;
+    private static EnforcementTask folderTask;
+    private static ScheduledFuture<?> metricsDumpTask;
 
     /**
      * Start the blocker daemon service
@@ -34,7 +51,9 @@ public class ServiceController {
         Main.logger.logInfo("Attempting to start the blocker daemon.");
         try {
             initializeService();
+            ProgramManager.subscribeToStorage();
             scheduleBlockerTask();
+            scheduleMetricsDump();
 
             isRunning.set(true);
             Main.logger.logInfo("Blocker daemon started successfully.");
@@ -63,8 +82,11 @@ public class ServiceController {
 
             isShuttingDown.set(true);
             cancelBlockerTask();
+            cancelMetricsDump();
+            ProgramManager.unsubscribeFromStorage();
             unlockAllFolders();
             shutdownScheduler();
+            dumpMetrics();
 
             isRunning.set(false);
             Main.logger.logInfo("Blocker daemon stopped successfully.");
@@ -127,6 +149,46 @@ public class ServiceController {
         }
     }
 
+    /**
+     * Get the program enforcement task, or null if the daemon has not been started
+     */
+    public static EnforcementTask getProgramTask() {
+        return programTask;
+    }
+
+    /**
+     * Get a snapshot of the blocker metrics (tick durations, processes scanned, kills, folder work)
+     */
+    public static BlockerMetrics.Snapshot getMetrics() {
+        return BlockerMetrics.get().snapshot();
+    }
+
+    /**
+     * Get the delay currently used between program checks
+     * @return the interval in milliseconds, or -1 if the daemon is not running
+     */
+    public static long getProgramCheckIntervalMs() {
+        EnforcementTask task = programTask;
+        return task != null && isRunning.get() ? task.getCurrentIntervalMs() : -1;
+    }
+
+    /**
+     * Run program checks at the fastest interval for a while, e.g. right after the locked programs changed
+     */
+    public static void boostProgramChecks() {
+        EnforcementTask task = programTask;
+        if (task != null && isRunning.get()) {
+            task.boost();
+        }
+    }
+
+    /**
+     * Get the folder enforcement task, or null if the daemon has not been started
+     */
+    public static EnforcementTask getFolderTask() {
+        return folderTask;
+    }
+
     /**
      * Check if the service is currently shutting down
      */
@@ -143,34 +205,118 @@ public class ServiceController {
             thread.setDaemon(true);
             return thread;
         });
+
+        String sourceName = Main.systemConfigStorage != null
+                ? Main.systemConfigStorage.get("process_source", ProcessHandleSource.NAME)
+                : ProcessHandleSource.NAME;
+        ProgramManager.setProcessSource(ProgramManager.createProcessSource(sourceName));
+
+        String strategyName = Main.systemConfigStorage != null
+                ? Main.systemConfigStorage.get("kill_strategy", ProcessTerminator.HANDLE_STRATEGY)
+                : ProcessTerminator.HANDLE_STRATEGY;
+        long confirmTimeoutMs = getConfiguredPeriod("kill_confirm_timeout_ms", DEFAULT_KILL_CONFIRM_TIMEOUT_MS);
+        ProcessTerminator.Strategy strategy = ProcessTerminator.createStrategy(strategyName);
+        ProcessTerminator.Strategy fallback = ProcessTerminator.TASKKILL_STRATEGY.equals(strategy.getName())
+                ? null
+                : new ProcessTerminator.TaskkillStrategy();
+        ProgramManager.setProcessTerminator(new ProcessTerminator(strategy, fallback, Duration.ofMillis(confirmTimeoutMs)));
+
+        // Walk every folder once after a start, afterwards only folders whose state or tree changed
+        FolderManager.resetEnforcementState();
+        FolderManager.setVerifyIntervalMs(getConfiguredPeriod("folder_verify_interval_ms", FolderManager.DEFAULT_VERIFY_INTERVAL_MS));
+        int aclParallelism = FolderAclEngine.DEFAULT_PARALLELISM;
+        int aclMaxPathsPerSecond = 0;
+        if (Main.systemConfigStorage != null) {
+            Object parallelism = Main.systemConfigStorage.get("folder_acl_parallelism", aclParallelism);
+            Object rate = Main.systemConfigStorage.get("folder_acl_max_paths_per_second", aclMaxPathsPerSecond);
+            aclParallelism = parallelism instanceof Number number ? number.intValue() : aclParallelism;
+            aclMaxPathsPerSecond = rate instanceof Number number ? number.intValue() : aclMaxPathsPerSecond;
+        }
+        FolderManager.configureAclEngine(aclParallelism, aclMaxPathsPerSecond);
+        boolean watchFolders = Main.systemConfigStorage == null || Main.systemConfigStorage.get("folder_watch", true);
+        if (watchFolders) {
+            FolderManager.startWatching();
+        }
         Main.logger.logDebug("Scheduler initialized");
     }
 
     private static void scheduleBlockerTask() {
-        blockerTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                if (isShuttingDown.get()) {
-                    Main.logger.logDebug("Shutdown requested, stopping blocker daemon tick");
-                    return;
-                }
+        long programMin = getConfiguredPeriod("program_check_min_interval_ms", DEFAULT_PROGRAM_CHECK_MIN_INTERVAL_MS);
+        long programMax = Math.max(programMin,
+                getConfiguredPeriod("program_check_max_interval_ms", DEFAULT_PROGRAM_CHECK_MAX_INTERVAL_MS));
+        long burstWindow = getConfiguredPeriod("program_check_burst_window_ms", DEFAULT_PROGRAM_CHECK_BURST_WINDOW_MS);
+        long folderPeriod = getConfiguredPeriod("folder_check_interval_ms", DEFAULT_FOLDER_CHECK_INTERVAL_MS);
+
+        // Separate tasks so a long folder walk never delays killing a blocked program.
+        // Program checks speed up after a violation or a change to the locked programs and back off while idle.
+        programTask = new EnforcementTask("programs", ProgramManager::checkPrograms,
+                new AdaptiveInterval(programMin, programMax, burstWindow));
+        folderTask = new EnforcementTask("folders", FolderManager::checkFolders, folderPeriod);
+        programTask.schedule(scheduler);
+        folderTask.schedule(scheduler);
+    }
 
-                Main.logger.logDebug("Blocker daemon tick: checking programs and folders");
-                ProgramManager.checkPrograms();
-                FolderManager.checkFolders();
+    private static long getConfiguredPeriod(String key, long defaultValue) {
+        if (Main.systemConfigStorage == null) {
+            return defaultValue;
+        }
 
-            } catch (Exception e) {
-                Main.logger.logError("Exception in blocker daemon tick: " + e.getMessage(), e);
-            }
-        }, 0, 1, TimeUnit.SECONDS);
+        Object value = Main.systemConfigStorage.get(key, defaultValue);
+        if (value instanceof Number number && number.longValue() > 0) {
+            return number.longValue();
+        }
+
+        Main.logger.logWarning("Invalid value for " + key + ": " + value + ", using " + defaultValue + " ms");
+        return defaultValue;
     }
 
     private static void cancelBlockerTask() {
-        if (blockerTask != null && !blockerTask.isCancelled()) {
-            blockerTask.cancel(true);
+        if (programTask != null) {
+            programTask.cancel();
+        }
+        if (folderTask != null) {
+            folderTask.cancel();
+        }
+    }
+
+    private static void scheduleMetricsDump() {
+        long interval = DEFAULT_METRICS_DUMP_INTERVAL_MS;
+        if (Main.systemConfigStorage != null) {
+            Object value = Main.systemConfigStorage.get("metrics_dump_interval_ms", DEFAULT_METRICS_DUMP_INTERVAL_MS);
+            interval = value instanceof Number number ? number.longValue() : DEFAULT_METRICS_DUMP_INTERVAL_MS;
+        }
+
+        if (interval <= 0) {
+            Main.logger.logDebug("Periodic metrics dump disabled");
+            return;
+        }
+        metricsDumpTask = scheduler.scheduleWithFixedDelay(ServiceController::dumpMetrics, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancelMetricsDump() {
+        if (metricsDumpTask != null && !metricsDumpTask.isCancelled()) {
+            metricsDumpTask.cancel(false);
+        }
+    }
+
+    /**
+     * Write the current metrics snapshot to the metrics file, replacing the previous dump
+     */
+    public static void dumpMetrics() {
+        try {
+            Path metricsFile = Paths.get(Main.APP_DATA_PATH, METRICS_FILE);
+            Path tempFile = Paths.get(Main.APP_DATA_PATH, METRICS_FILE + ".tmp");
+            Files.createDirectories(metricsFile.getParent());
+            Files.writeString(tempFile, getMetrics().toText());
+            Files.move(tempFile, metricsFile, StandardCopyOption.REPLACE_EXISTING);
+            Main.logger.logDebug("Metrics written to " + metricsFile);
+        } catch (Exception e) {
+            Main.logger.logWarning("Failed to write metrics file: " + e.getMessage());
         }
     }
 
     private static void unlockAllFolders() {
+        FolderManager.stopWatching();
         FolderManager.unlockAllFolders();
     }
 
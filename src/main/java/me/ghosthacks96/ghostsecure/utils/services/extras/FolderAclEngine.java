@@ -0,0 +1,291 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static me.ghosthacks96.ghostsecure.Main.logger;
+
+/**
+ * Applies ACLs to a folder tree from several threads.
+ *
+ * Every directory is a fork/join task. Its subdirectories become subtasks and its files are handed out
+ * in batches, so wide directories are split as well as deep ones. Locking joins every child before it
+ * locks the directory itself, since a locked directory can no longer be listed; unlocking handles the
+ * directory first so its contents can be listed at all. Each ACL write of a lock takes a permit from a
+ * shared rate limit, which keeps a large tree from saturating the disk while other programs use it.
+ * Unlocks are never limited: they run when the daemon stops, and a slow unlock would leave folders
+ * locked if the process is killed before it finishes.
+ *
+ * ACL writes and rate limit waits block the worker, so they run as managed blocks and the pool can add
+ * threads, up to twice the parallelism, to keep the configured number of workers busy.
+ */
+public class FolderAclEngine {
+
+    public static final int DEFAULT_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PARALLELISM = 64;
+    private static final int FILE_BATCH_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final long nanosPerPath;
+    private final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param parallelism how many threads write ACLs at the same time
+     * @param maxPathsPerSecond upper limit for ACL writes across all threads, 0 for no limit
+     */
+    public FolderAclEngine(int parallelism, int maxPathsPerSecond) {
+        this.parallelism = Math.max(1, Math.min(parallelism, MAX_PARALLELISM));
+        this.nanosPerPath = maxPathsPerSecond > 0 ? 1_000_000_000L / maxPathsPerSecond : 0;
+        this.pool = new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("FolderAcl-Worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false, 0, this.parallelism * 2, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Lock a tree, every entry before the directory that contains it.
+     *
+     * @param root the folder root, or a single file
+     * @param beforeDirectory called for each directory before anything in it is locked, e.g. to start watching it
+     * @param lock applies the lock to one path
+     * @return how many paths were locked and how long it took
+     */
+    public Result lockTree(Path root, Consumer<Path> beforeDirectory, Consumer<Path> lock) {
+        Run run = new Run(beforeDirectory, lock, true);
+        pool.invoke(new LockTask(run, root));
+        return run.finish();
+    }
+
+    /**
+     * Unlock a tree, every directory before its contents. Not rate limited.
+     *
+     * @param root the folder root, or a single file
+     * @param unlock removes the lock from one path
+     * @return how many paths were unlocked and how long it took
+     */
+    public Result unlockTree(Path root, Consumer<Path> unlock) {
+        Run run = new Run(null, unlock, false);
+        pool.invoke(new UnlockTask(run, root));
+        return run.finish();
+    }
+
+    /**
+     * Stop the worker threads once the running trees are done
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Wait for the next permit if a rate limit is set. Permits are handed out at fixed spacing,
+     * and a thread that has been idle does not build up a burst.
+     */
+    private void acquirePermit() {
+        if (nanosPerPath <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long permit = nextPermitNanos.updateAndGet(next -> Math.max(next, now) + nanosPerPath) - nanosPerPath;
+        long wait;
+        while ((wait = permit - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private final class Run {
+        private final Consumer<Path> beforeDirectory;
+        private final Consumer<Path> action;
+        private final boolean rateLimited;
+        private final LongAdder paths = new LongAdder();
+        private final long startNanos = System.nanoTime();
+
+        private Run(Consumer<Path> beforeDirectory, Consumer<Path> action, boolean rateLimited) {
+            this.beforeDirectory = beforeDirectory;
+            this.action = action;
+            this.rateLimited = rateLimited;
+        }
+
+        private void apply(Path path) {
+            try {
+                ForkJoinPool.managedBlock(new PathWrite(this, path));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.logDebug("Interrupted before applying permissions to: " + path);
+                return;
+            }
+            paths.increment();
+        }
+
+        /**
+         * List a directory into subdirectory tasks and file batches
+         */
+        private List<RecursiveAction> split(Path directory, boolean lock) {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        tasks.add(lock ? new LockTask(this, entry) : new UnlockTask(this, entry));
+                    } else {
+                        files.add(entry);
+                        if (files.size() == FILE_BATCH_SIZE) {
+                            tasks.add(new FileBatchTask(this, files));
+                            files = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Usually a directory that is locked already; it is still handled itself
+                logger.logDebug("Cannot list " + directory + ": " + e.getMessage());
+            }
+            if (!files.isEmpty()) {
+                tasks.add(new FileBatchTask(this, files));
+            }
+            return tasks;
+        }
+
+        private Result finish() {
+            return new Result(paths.sum(), System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * One ACL write, with its rate limit wait, as a blocking call the pool can compensate for
+     */
+    private final class PathWrite implements ForkJoinPool.ManagedBlocker {
+        private final Run run;
+        private final Path path;
+        private boolean done;
+
+        private PathWrite(Run run, Path path) {
+            this.run = run;
+            this.path = path;
+        }
+
+        @Override
+        public boolean block() {
+            if (run.rateLimited) {
+                acquirePermit();
+            }
+            try {
+                run.action.accept(path);
+            } catch (Exception e) {
+                logger.logError("Failed to apply permissions to: " + path + "; Error: " + e.getMessage(), e);
+            }
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    private final class LockTask extends RecursiveAction {
+        private final Run run;
+        private final Path path;
+
+        private LockTask(Run run, Path path) {
+            this.run = run;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            if (ServiceController.isShuttingDown()) {
+                return;
+            }
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (run.beforeDirectory != null) {
+                    run.beforeDirectory.accept(path);
+                }
+                invokeAll(run.split(path, true));
+            }
+            run.apply(path);
+        }
+    }
+
+    private final class UnlockTask extends RecursiveAction {
+        private final Run run;
+        private final Path path;
+
+        private UnlockTask(Run run, Path path) {
+            this.run = run;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            run.apply(path);
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                invokeAll(run.split(path, false));
+            }
+        }
+    }
+
+    private static final class FileBatchTask extends RecursiveAction {
+        private final Run run;
+        private final List<Path> files;
+
+        private FileBatchTask(Run run, List<Path> files) {
+            this.run = run;
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            for (Path file : files) {
+                run.apply(file);
+            }
+        }
+    }
+
+    /**
+     * Outcome of one tree.
+     */
+    public static final class Result {
+        private final long paths;
+        private final long elapsedNanos;
+
+        Result(long paths, long elapsedNanos) {
+            this.paths = paths;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getPaths() {
+            return paths;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public long getPathsPerSecond() {
+            return elapsedNanos > 0 ? paths * 1_000_000_000L / elapsedNanos : paths;
+        }
+    }
+}
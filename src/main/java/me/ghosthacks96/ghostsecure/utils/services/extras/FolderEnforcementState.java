@@ -0,0 +1,162 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * What was last enforced on one folder tree, so the folder check can skip trees that have not changed.
+ *
+ * Holds the lock state that was applied, when the tree was last walked and the directories seen in that
+ * walk. The owner of a folder can reset its ACL at any time without touching an mtime, so on every tick the
+ * root's ACL is checked along with the root's mtime, which costs two reads per folder. Directories below
+ * the root cannot be read once the lock is applied, so instead of their mtimes a sample of their ACLs is
+ * checked every verify interval, moving through the tree from one interval to the next.
+ */
+public class FolderEnforcementState {
+
+    private static final long UNREADABLE = Long.MIN_VALUE;
+    private static final long MISSING = -1;
+    // Directories whose ACL is checked per verify interval
+    private static final int VERIFY_SAMPLE_SIZE = 64;
+
+    private final Path root;
+    private final boolean locked;
+    private final String lockMode;
+    private final boolean inherited;
+    private final long walkedAtMillis;
+    private final long rootMtime;
+    private final List<Path> directories;
+    private long verifiedAtMillis;
+    private int sampleCursor;
+
+    /**
+     * @param root the folder the state belongs to
+     * @param locked the lock state that was applied
+     * @param lockMode the lock mode the folder asked for
+     * @param inherited true if directories were given the inheritable lock, which new entries receive on creation
+     * @param directoryMtimes mtimes of the directories seen in the walk, read before the lock was applied
+     * @param walkedAtMillis when the walk happened
+     */
+    public FolderEnforcementState(Path root, boolean locked, String lockMode, boolean inherited,
+                                  Map<Path, Long> directoryMtimes, long walkedAtMillis) {
+        this.root = root;
+        this.locked = locked;
+        this.lockMode = lockMode;
+        this.inherited = inherited;
+        this.rootMtime = directoryMtimes.getOrDefault(root, UNREADABLE);
+        this.directories = List.copyOf(directoryMtimes.keySet());
+        this.walkedAtMillis = walkedAtMillis;
+        this.verifiedAtMillis = walkedAtMillis;
+    }
+
+    /**
+     * @return the lock state that was applied
+     */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * @return the lock mode the folder asked for when the state was applied
+     */
+    public String getLockMode() {
+        return lockMode;
+    }
+
+    /**
+     * @return true if directories carry the inheritable lock, so entries created in them are locked on creation.
+     * False after a per-file pass, including when inheritance was asked for but not supported.
+     */
+    public boolean isInherited() {
+        return inherited;
+    }
+
+    /**
+     * @return when the tree was last walked
+     */
+    public long getWalkedAtMillis() {
+        return walkedAtMillis;
+    }
+
+    /**
+     * @return how many directories are tracked
+     */
+    public int getDirectoryCount() {
+        return directories.size();
+    }
+
+    /**
+     * Check whether the root still carries the lock. Done on every tick, also for watched folders: a change
+     * to the root's own ACL is reported to its parent directory, which is not watched.
+     *
+     * @param lockIntact tells whether a path still carries the lock
+     * @return true if the lock was removed or replaced on the root
+     */
+    public boolean isRootTampered(Predicate<Path> lockIntact) {
+        return locked && !lockIntact.test(root);
+    }
+
+    /**
+     * Check whether the tree needs another full pass. Unlocked trees never do, since new files there
+     * get normal permissions anyway.
+     *
+     * @param nowMillis the current time
+     * @param verifyIntervalMs how often a sample of the tracked directories is checked, not just the root
+     * @param lockIntact tells whether a path still carries the lock
+     * @return true if the root changed or a sampled directory lost the lock or disappeared
+     */
+    public synchronized boolean hasChanged(long nowMillis, long verifyIntervalMs, Predicate<Path> lockIntact) {
+        if (!locked) {
+            return false;
+        }
+
+        if (isRootTampered(lockIntact) || rootChanged()) {
+            return true;
+        }
+
+        if (nowMillis - verifiedAtMillis < verifyIntervalMs) {
+            return false;
+        }
+
+        int sampleSize = Math.min(VERIFY_SAMPLE_SIZE, directories.size());
+        for (int i = 0; i < sampleSize; i++) {
+            Path directory = directories.get(sampleCursor);
+            sampleCursor = (sampleCursor + 1) % directories.size();
+            if (!lockIntact.test(directory)) {
+                return true;
+            }
+        }
+        verifiedAtMillis = nowMillis;
+        return false;
+    }
+
+    private boolean rootChanged() {
+        if (rootMtime == UNREADABLE) {
+            return false;
+        }
+
+        long current = readMtime(root);
+        return current != UNREADABLE && current != rootMtime;
+    }
+
+    /**
+     * Read a directory's modification time for tracking.
+     *
+     * @param directory the directory
+     * @return the mtime in milliseconds, -1 if it does not exist or {@link Long#MIN_VALUE} if it cannot be read
+     */
+    public static long readMtime(Path directory) {
+        try {
+            return Files.getLastModifiedTime(directory).toMillis();
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        } catch (IOException | SecurityException e) {
+            return UNREADABLE;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import me.ghosthacks96.ghostsecure.Main;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.Logging;
+import me.ghosthacks96.ghostsecure.utils.services.BlockerMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the per-file and inherit lock modes on a synthetic folder tree.
+ *
+ * Builds a fresh tree for each mode, locks and unlocks it through the same code the folder check uses,
+ * and prints the time and the number of ACL writes for both. The tree is deleted afterwards. Both modes
+ * write every entry, so they cost about the same to apply; inherit mode additionally makes the file
+ * system lock new entries, which is what keeps its trees from having to be watched afterwards.
+ * Needs a file system with ACL support (NTFS); run it from the blocker's image, e.g.
+ * {@code java -m ghostsecure/me.ghosthacks96.ghostsecure.utils.services.extras.FolderLockBenchmark [dir] [files] [filesPerDirectory] [threads]}
+ */
+public final class FolderLockBenchmark {
+
+    private static final int DEFAULT_FILES = 20_000;
+    private static final int DEFAULT_FILES_PER_DIRECTORY = 100;
+    // Each directory holds this many subdirectories, so the tree grows in depth as well as width
+    private static final int SUBDIRECTORIES_PER_DIRECTORY = 8;
+
+    private FolderLockBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Main.logger = new Logging();
+        Main.logger.setDebugConsoleEnabled(false);
+
+        Path baseDir = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("ghostsecure-bench");
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FILES;
+        int filesPerDirectory = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FILES_PER_DIRECTORY;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : FolderAclEngine.DEFAULT_PARALLELISM;
+        FolderManager.configureAclEngine(threads, 0);
+
+        Files.createDirectories(baseDir);
+        if (Files.getFileAttributeView(baseDir, AclFileAttributeView.class) == null) {
+            System.err.println("The file system of " + baseDir + " does not support ACLs, nothing to compare.");
+            System.exit(1);
+        }
+
+        System.out.println("Tree: " + files + " files, " + filesPerDirectory + " per directory, under " + baseDir
+                + ", " + threads + " threads");
+        for (String mode : new String[]{FolderManager.PER_FILE_LOCK_MODE, FolderManager.INHERIT_LOCK_MODE}) {
+            Path root = baseDir.resolve("tree-" + mode);
+            int paths = createTree(root, files, filesPerDirectory);
+            run(mode, root, paths);
+            deleteTree(root);
+        }
+        System.out.println("Note: both modes lock every existing entry. Inherit also locks new entries on creation,"
+                + " per-file relies on the folder watcher for those, which this benchmark does not measure.");
+    }
+
+    private static void run(String mode, Path root, int paths) {
+        BlockerMetrics metrics = BlockerMetrics.get();
+
+        long writesBefore = metrics.snapshot().getCounter(BlockerMetrics.PATHS_PROCESSED);
+        long start = System.nanoTime();
+        FolderEnforcementState locked = FolderManager.applyLockState(root.toString(), root, true, mode);
+        long lockMs = (System.nanoTime() - start) / 1_000_000;
+        long lockWrites = metrics.snapshot().getCounter(BlockerMetrics.PATHS_PROCESSED) - writesBefore;
+
+        writesBefore = metrics.snapshot().getCounter(BlockerMetrics.PATHS_PROCESSED);
+        start = System.nanoTime();
+        FolderManager.applyLockState(root.toString(), root, false, mode);
+        long unlockMs = (System.nanoTime() - start) / 1_000_000;
+        long unlockWrites = metrics.snapshot().getCounter(BlockerMetrics.PATHS_PROCESSED) - writesBefore;
+
+        String applied = locked == null ? "failed" : locked.isInherited() ? "inherited" : "per file";
+        System.out.printf("%-9s %7d paths | lock %6d ms, %7d writes | unlock %6d ms, %7d writes | applied %s%n",
+                mode, paths, lockMs, lockWrites, unlockMs, unlockWrites, applied);
+    }
+
+    /**
+     * @return how many paths the tree holds, including the root
+     */
+    private static int createTree(Path root, int files, int filesPerDirectory) throws IOException {
+        int directoryCount = Math.max(1, (files + filesPerDirectory - 1) / filesPerDirectory);
+        List<Path> directories = new ArrayList<>(directoryCount);
+        directories.add(Files.createDirectories(root));
+        for (int i = 1; i < directoryCount; i++) {
+            Path parent = directories.get((i - 1) / SUBDIRECTORIES_PER_DIRECTORY);
+            directories.add(Files.createDirectory(parent.resolve("dir" + i)));
+        }
+
+        for (int i = 0; i < files; i++) {
+            Files.createFile(directories.get(i / filesPerDirectory).resolve("file" + i + ".txt"));
+        }
+        return directoryCount + files;
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
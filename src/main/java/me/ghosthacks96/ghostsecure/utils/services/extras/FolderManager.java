@@ -1,23 +1,34 @@
 package me.ghosthacks96.ghostsecure.utils.services.extras;
 
-import me.ghosthacks96.ghostsecure.itemTypes.LockedItem;
+import me.ghosthacks96.ghostsecure.utils.services.BlockerMetrics;
 import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
 
 import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryFlag;
 import java.nio.file.attribute.AclEntryPermission;
 import java.nio.file.attribute.AclEntryType;
 import java.nio.file.attribute.AclFileAttributeView;
-import java.util.ArrayList;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import static me.ghosthacks96.ghostsecure.Main.folderStorage;
 import static me.ghosthacks96.ghostsecure.Main.logger;
+import static me.ghosthacks96.ghostsecure.Main.systemConfigStorage;
 
 import java.util.Map;
 
@@ -25,6 +36,23 @@ public class FolderManager {
 
     private static long lastLogTime = 0;
     private static final long LOG_INTERVAL_MS = 60_000; // 1 minute
+    public static final long DEFAULT_VERIFY_INTERVAL_MS = 60_000;
+
+    // How a folder is locked, stored per folder under "lock_mode"
+    public static final String LOCK_MODE_KEY = "lock_mode";
+    public static final String PER_FILE_LOCK_MODE = "per_file";
+    public static final String INHERIT_LOCK_MODE = "inherit";
+
+    // What was last applied to each folder, by stored path, so unchanged trees are not walked again
+    private static final Map<String, FolderEnforcementState> enforcementStates = new ConcurrentHashMap<>();
+    private static volatile long verifyIntervalMs = DEFAULT_VERIFY_INTERVAL_MS;
+
+    private static volatile UserPrincipal everyonePrincipal;
+
+    // Reports new and modified entries in locked trees while the daemon runs; null when watching is off
+    private static volatile FolderWatcher folderWatcher;
+    // Full passes over a tree run on this engine
+    private static volatile FolderAclEngine aclEngine = new FolderAclEngine(FolderAclEngine.DEFAULT_PARALLELISM, 0);
 
     /**
      * Check and apply folder permissions for all locked items
@@ -33,8 +61,11 @@ public class FolderManager {
         logDebugWithThrottle("checkFolders() called");
 
         try {
-            // Get all folder data from folderStorage
-            Map<String, Object> allData = folderStorage.getAllData();
+            // Read the current snapshot of folderStorage without copying it
+            Map<String, Object> allData = folderStorage.getSnapshot().getData();
+
+            Set<String> seenPaths = new HashSet<>();
+            long now = System.currentTimeMillis();
 
             for (Map.Entry<String, Object> entry : allData.entrySet()) {
                 if (ServiceController.isShuttingDown()) {
@@ -46,182 +77,401 @@ public class FolderManager {
                     Map<String, Object> itemData = (Map<String, Object>) entry.getValue();
                     if ("FOLDER".equals(itemData.get("type"))) {
                         String path = (String) itemData.get("path");
-                        String name = (String) itemData.get("name");
-                        boolean locked = (boolean) itemData.get("locked");
+                        boolean locked = Boolean.TRUE.equals(itemData.get("locked"));
+                        String lockMode = getLockMode(itemData);
+                        seenPaths.add(path);
+
+                        // Nothing to do if the same state is already applied and the tree has not changed.
+                        // Changes in watched trees arrive as events instead, see applyWatchedChanges. A change
+                        // to the root's own ACL is reported to its parent, which is not watched, so the root
+                        // is checked for watched trees as well
+                        FolderEnforcementState state = enforcementStates.get(path);
+                        Predicate<Path> lockIntact = target -> isLockIntact(target, state != null && state.isInherited());
+                        if (state != null && state.isLocked() == locked && state.getLockMode().equals(lockMode)
+                                && (isWatched(path)
+                                        ? !state.isRootTampered(lockIntact)
+                                        : !state.hasChanged(now, verifyIntervalMs, lockIntact))) {
+                            BlockerMetrics.get().increment(BlockerMetrics.FOLDERS_UNCHANGED);
+                            continue;
+                        }
 
                         Path folderPath = Paths.get(path);
                         logger.logDebug("Checking folder: " + path);
 
                         if (!Files.exists(folderPath)) {
                             logger.logWarning("Folder does not exist: " + path);
+                            enforcementStates.remove(path);
                             continue;
                         }
 
-                        // Create a temporary LockedItem for compatibility with existing methods
-                        LockedItem item = new LockedItem(path, name) {
-                            @Override
-                            public boolean isLocked() {
-                                return locked;
-                            }
-
-                            @Override
-                            public String getItemType() {
-                                return "FOLDER";
-                            }
-
-                            @Override
-                            public LockedItem copy() {
-                                return this;
-                            }
-                        };
-
-                        applyPermissionsRecursively(folderPath, item);
+                        // A locked folder switching lock mode is locked again in the new mode without being unlocked
+                        // first, so its contents are never left open. Entries it can no longer list keep their lock
+                        // from the old mode until the folder is unlocked
+                        if (state != null && state.isLocked() && locked && !state.getLockMode().equals(lockMode)) {
+                            logger.logInfo("Lock mode of " + path + " changed to " + lockMode + ", re-applying lock");
+                        }
+
+                        FolderEnforcementState applied = applyLockState(path, folderPath, locked, lockMode);
+                        if (applied != null) {
+                            enforcementStates.put(path, applied);
+                        } else {
+                            // Try the whole tree again next tick
+                            enforcementStates.remove(path);
+                        }
+                        BlockerMetrics.get().increment(BlockerMetrics.FOLDERS_PROCESSED);
                     }
                 }
             }
+
+            // Forget folders that were removed from storage
+            enforcementStates.keySet().retainAll(seenPaths);
+
+            FolderWatcher watcher = folderWatcher;
+            if (watcher != null) {
+                // Keep the watches in line with storage: only folders that are currently locked stay watched
+                for (String watchedRoot : watcher.getWatchedRoots()) {
+                    FolderEnforcementState state = enforcementStates.get(watchedRoot);
+                    if (state == null || !state.isLocked()) {
+                        watcher.unregister(watchedRoot);
+                    }
+                }
+                applyWatchedChanges(watcher);
+            }
         } catch (Exception e) {
             logger.logError("Failed to check locked folders: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Unlock all folders (used during shutdown)
+     * Set how often every directory of a locked tree is checked for changes; the root is checked every tick
+     * @param intervalMs The interval in milliseconds
      */
-    public static void unlockAllFolders() {
-        logger.logDebug("unlockAllFolders() called");
+    public static void setVerifyIntervalMs(long intervalMs) {
+        verifyIntervalMs = intervalMs;
+    }
 
+    /**
+     * Set how many threads write ACLs during a full pass over a tree and how fast locks may go.
+     * Unlocks, including the one when the daemon stops, are never rate limited
+     * @param parallelism The number of threads
+     * @param maxPathsPerSecond The limit for lock ACL writes across all threads, 0 for no limit
+     */
+    public static void configureAclEngine(int parallelism, int maxPathsPerSecond) {
+        FolderAclEngine previous = aclEngine;
+        aclEngine = new FolderAclEngine(parallelism, maxPathsPerSecond);
+        previous.shutdown();
+        logger.logDebug("Folder ACL engine: " + aclEngine.getParallelism() + " threads, "
+                + (maxPathsPerSecond > 0 ? maxPathsPerSecond + " paths/s max" : "no rate limit"));
+    }
+
+    /**
+     * Start watching locked trees for new entries instead of relying on directory mtimes.
+     * Falls back to mtime checks if the file system cannot be watched.
+     */
+    public static synchronized void startWatching() {
+        stopWatching();
         try {
-            // Get all folder data from folderStorage
-            Map<String, Object> allData = folderStorage.getAllData();
+            folderWatcher = new FolderWatcher();
+            logger.logDebug("Folder watching started");
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.logWarning("Cannot watch folders, checking directory times instead: " + e.getMessage());
+        }
+    }
 
-            for (Map.Entry<String, Object> entry : allData.entrySet()) {
-                if (entry.getValue() instanceof Map) {
-                    Map<String, Object> itemData = (Map<String, Object>) entry.getValue();
-                    if ("FOLDER".equals(itemData.get("type"))) {
-                        String path = (String) itemData.get("path");
+    /**
+     * Stop watching locked trees
+     */
+    public static synchronized void stopWatching() {
+        FolderWatcher watcher = folderWatcher;
+        folderWatcher = null;
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
 
-                        Path folderPath = Paths.get(path);
-                        if (!Files.exists(folderPath)) {
-                            logger.logWarning("Folder does not exist: " + path);
-                            continue;
-                        }
+    private static boolean isWatched(String rootKey) {
+        FolderWatcher watcher = folderWatcher;
+        return watcher != null && watcher.isWatching(rootKey);
+    }
 
-                        logger.logDebug("Unlocking folder: " + path);
-                        applyPermissionsRecursively(folderPath, false); // Force unlock
-                    }
+    /**
+     * Lock what changed in watched trees since the last tick: new and modified entries, new subdirectories
+     * with their contents, and whole directories whose events overflowed. Entries that already carry the
+     * lock are left alone, which also ignores the events caused by applying the lock.
+     */
+    private static void applyWatchedChanges(FolderWatcher watcher) {
+        List<FolderWatcher.Change> changes = watcher.poll();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        BlockerMetrics metrics = BlockerMetrics.get();
+        metrics.increment(BlockerMetrics.WATCH_EVENTS, changes.size());
+        Set<Path> handled = new HashSet<>();
+
+        for (FolderWatcher.Change change : changes) {
+            if (ServiceController.isShuttingDown()) {
+                return;
+            }
+
+            FolderEnforcementState state = enforcementStates.get(change.getRootKey());
+            if (state == null || !state.isLocked() || !handled.add(change.getPath())) {
+                continue;
+            }
+
+            Path path = change.getPath();
+            try {
+                if (change.getKind() == FolderWatcher.Change.Kind.RESCAN) {
+                    metrics.increment(BlockerMetrics.WATCH_OVERFLOWS);
+                    logger.logDebug("Watch events lost for " + path + ", rescanning it");
+                    lockChangedTree(watcher, change.getRootKey(), path);
+                } else if (change.getKind() == FolderWatcher.Change.Kind.CREATED && Files.isDirectory(path)) {
+                    lockChangedTree(watcher, change.getRootKey(), path);
+                } else if (Files.exists(path) && !isLockApplied(path)) {
+                    applyPermissionsToPath(path, true, false);
                 }
+            } catch (Exception e) {
+                logger.logError("Failed to lock changed path: " + path + "; Error: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.logError("Failed to unlock folders: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Apply permissions recursively to a folder and all its contents
+     * Watch and lock a directory that appeared in, or has to be rescanned within, a locked tree
      */
-    private static void applyPermissionsRecursively(Path rootPath, LockedItem item) {
-        applyPermissionsRecursively(rootPath, item.isLocked());
+    private static void lockChangedTree(FolderWatcher watcher, String rootKey, Path directory) throws IOException {
+        Files.walkFileTree(directory, new LockingVisitor(rootKey, watcher));
     }
 
     /**
-     * Apply permissions recursively to a folder and all its contents
+     * Forget what was applied, so the next check walks every folder again
+     */
+    public static void resetEnforcementState() {
+        enforcementStates.clear();
+    }
+
+    /**
+     * Get the lock mode of a stored folder. Folders stored before lock modes existed are locked per file.
+     */
+    public static String getLockMode(Map<?, ?> itemData) {
+        return INHERIT_LOCK_MODE.equals(itemData.get(LOCK_MODE_KEY)) ? INHERIT_LOCK_MODE : PER_FILE_LOCK_MODE;
+    }
+
+    /**
+     * Get the lock mode for newly added folders from the folder_lock_mode setting. The setting is only
+     * read when a folder is added, so changing it never switches the mode of folders already stored.
+     */
+    public static String getDefaultLockMode() {
+        Object mode = systemConfigStorage != null ? systemConfigStorage.get("folder_lock_mode", PER_FILE_LOCK_MODE) : null;
+        return INHERIT_LOCK_MODE.equals(mode) ? INHERIT_LOCK_MODE : PER_FILE_LOCK_MODE;
+    }
+
+    /**
+     * Lock or unlock a folder in the given mode.
+     *
+     * Both modes write every entry of the tree, so both protect existing contents and cost about the same
+     * to apply. In inherit mode directories get an entry flagged to be inherited by files and subdirectories:
+     * an entry created anywhere in the tree is denied by the file system the moment it is created, so the
+     * tree is not watched. In per-file mode entries created later are open until the watcher reports them
+     * and they are locked. Java can only write explicit entries, it cannot make existing entries inherit from
+     * their parent, which is why inherit mode walks the tree as well. If the file system drops the inheritance
+     * flags, the folder is locked per file instead. Unlocking writes the same allow entry in both modes.
+     *
+     * @param rootKey The folder's stored path
      * @param rootPath The root path to apply permissions to
-     * @param shouldLock Whether to lock (true) or unlock (false) the path
+     * @param shouldLock Whether to lock (true) or unlock (false) the folder
+     * @param lockMode The folder's lock mode
+     * @return what was applied, or null if the walk failed
      */
-    private static void applyPermissionsRecursively(Path rootPath, boolean shouldLock) {
-        logger.logDebug("applyPermissionsRecursively() called for: " + rootPath);
+    static FolderEnforcementState applyLockState(String rootKey, Path rootPath, boolean shouldLock, String lockMode) {
+        boolean inherit = shouldLock && INHERIT_LOCK_MODE.equals(lockMode) && Files.isDirectory(rootPath);
+        if (inherit && !supportsInheritance(rootPath)) {
+            logger.logWarning("Inherited permissions are not supported for " + rootPath + ", using per-file mode");
+            inherit = false;
+        }
+
+        return applyPermissionsRecursively(rootKey, rootPath, shouldLock, lockMode, inherit);
+    }
 
+    /**
+     * Check that the file system keeps the inheritance flags, by writing an inheritable allow entry on the
+     * root. The root is still open at this point and is locked last, so the probe opens nothing new.
+     * @return false if the file system rejected the entry or dropped its inheritance flags
+     */
+    private static boolean supportsInheritance(Path rootPath) {
         try {
-            if (shouldLock) {
-                // When locking: collect all paths first (while unlocked), then lock deepest first
-                List<Path> allPaths = collectAllPaths(rootPath);
-                lockPathsDeepestFirst(allPaths);
-            } else {
-                // When unlocking: unlock root first, then process contents
-                unlockPathsRootFirst(rootPath);
+            AclFileAttributeView aclView = Files.getFileAttributeView(rootPath, AclFileAttributeView.class);
+            if (aclView == null) {
+                return false;
             }
+
+            AclEntry aclEntry = createInheritableAclEntry(false);
+            aclView.setAcl(List.of(aclEntry));
+            return aclView.getAcl().contains(aclEntry);
         } catch (Exception e) {
-            logger.logError("Failed to apply permissions recursively to: " + rootPath + "; Error: " + e.getMessage(), e);
+            logger.logDebug("Failed to write inheritable permissions to " + rootPath + ": " + e.getMessage());
+            return false;
         }
     }
 
     /**
-     * Collect all paths in the directory tree while it's still accessible
+     * Apply permissions recursively to a folder and all its contents
+     * @param rootKey The folder's stored path
+     * @param rootPath The root path to apply permissions to
+     * @param shouldLock Whether to lock (true) or unlock (false) the path
+     * @param lockMode The folder's lock mode, recorded in the returned state
+     * @param inherit Whether directories get the inheritable lock instead of being watched
+     * @return what was applied, for skipping the folder while it stays unchanged, or null if the walk failed
      */
-    private static List<Path> collectAllPaths(Path rootPath) throws IOException {
-        List<Path> allPaths = new ArrayList<>();
+    private static FolderEnforcementState applyPermissionsRecursively(String rootKey, Path rootPath, boolean shouldLock,
+                                                                      String lockMode, boolean inherit) {
+        logger.logDebug("applyPermissionsRecursively() called for: " + rootPath);
+        Map<Path, Long> directoryMtimes = new ConcurrentHashMap<>();
+        FolderWatcher watcher = folderWatcher;
+        FolderAclEngine engine = aclEngine;
+        FolderAclEngine.Result result;
 
-        if (Files.isDirectory(rootPath)) {
-            try (Stream<Path> paths = Files.walk(rootPath)) {
-                allPaths = paths.toList();
+        try {
+            if (shouldLock) {
+                // When locking: every entry is locked before its directory, which stays readable until then.
+                // Directories are recorded and watched before anything in them is locked; inherited locks
+                // cover new entries, so those trees are not watched
+                AtomicInteger unwatched = new AtomicInteger();
+                if (inherit && watcher != null) {
+                    watcher.unregister(rootKey);
+                }
+                result = engine.lockTree(rootPath, directory -> {
+                    directoryMtimes.put(directory, FolderEnforcementState.readMtime(directory));
+                    if (!inherit && watcher != null) {
+                        unwatched.addAndGet(watcher.register(rootKey, List.of(directory)));
+                    }
+                }, path -> applyPermissionsToPath(path, true, inherit && directoryMtimes.containsKey(path)));
+                if (unwatched.get() > 0) {
+                    logger.logWarning("Could not watch " + unwatched.get() + " directories under " + rootPath);
+                }
+            } else {
+                // When unlocking: stop watching first so the unlock itself is not reported, then unlock root first
+                if (watcher != null) {
+                    watcher.unregister(rootKey);
+                }
+                result = engine.unlockTree(rootPath, path -> applyPermissionsToPath(path, false, false));
             }
-        } else {
-            allPaths.add(rootPath);
+        } catch (Exception e) {
+            logger.logError("Failed to apply permissions recursively to: " + rootPath + "; Error: " + e.getMessage(), e);
+            return null;
         }
 
-        logger.logDebug("Collected " + allPaths.size() + " paths under " + rootPath);
-        return allPaths;
+        logger.logInfo((shouldLock ? "Locked " : "Unlocked ") + rootPath + ": " + result.getPaths() + " paths in "
+                + result.getElapsedMillis() + " ms (" + result.getPathsPerSecond() + " paths/s, "
+                + engine.getParallelism() + " threads)");
+        return new FolderEnforcementState(rootPath, shouldLock, lockMode, inherit, directoryMtimes,
+                System.currentTimeMillis() - result.getElapsedMillis());
     }
 
     /**
-     * Lock paths starting from the deepest level (files first, then directories)
+     * Unlock all folders (used during shutdown)
      */
-    private static void lockPathsDeepestFirst(List<Path> allPaths) {
-        allPaths.stream()
-                .sorted((p1, p2) -> Integer.compare(p2.getNameCount(), p1.getNameCount()))
-                .forEach(path -> {
-                    try {
-                        applyPermissionsToPath(path, true);
-                    } catch (Exception e) {
-                        logger.logError("Failed to apply lock permissions to: " + path + "; Error: " + e.getMessage(), e);
-                    }
-                });
-    }
+    public static void unlockAllFolders() {
+        logger.logDebug("unlockAllFolders() called");
 
-    /**
-     * Unlock paths starting from root, then recursively unlock contents
-     */
-    private static void unlockPathsRootFirst(Path rootPath) {
         try {
-            // First unlock the root so we can access its contents
-            applyPermissionsToPath(rootPath, false);
+            // Read the current snapshot of folderStorage without copying it
+            Map<String, Object> allData = folderStorage.getSnapshot().getData();
 
-            // If it's a directory, process its contents
-            if (Files.isDirectory(rootPath)) {
-                processDirectoryContentsForUnlock(rootPath);
+            for (Map.Entry<String, Object> entry : allData.entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    Map<String, Object> itemData = (Map<String, Object>) entry.getValue();
+                    if ("FOLDER".equals(itemData.get("type"))) {
+                        String path = (String) itemData.get("path");
+
+                        Path folderPath = Paths.get(path);
+                        if (!Files.exists(folderPath)) {
+                            logger.logWarning("Folder does not exist: " + path);
+                            continue;
+                        }
+
+                        logger.logDebug("Unlocking folder: " + path);
+                        applyLockState(path, folderPath, false, getLockMode(itemData)); // Force unlock
+                        enforcementStates.remove(path);
+                    }
+                }
             }
         } catch (Exception e) {
-            logger.logError("Failed to unlock path: " + rootPath + "; Error: " + e.getMessage(), e);
+            logger.logError("Failed to unlock folders: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Process directory contents for unlocking (root-first approach)
+     * Locks a directory that appeared in, or has to be rescanned within, a watched tree, in a single pass
+     * on the calling thread. Such subtrees are usually small, so they skip the engine's task setup.
+     *
+     * Files are locked as they are visited and a directory after its last entry, which gives the
+     * children-before-parent order the lock needs: a directory is still readable while it is listed.
+     * Directories are registered for watching on the way down, before they are locked, and entries
+     * that already carry the lock are left alone.
      */
-    private static void processDirectoryContentsForUnlock(Path rootPath) throws IOException {
-        try (Stream<Path> paths = Files.list(rootPath)) {
-            List<Path> directContents = paths.toList();
-
-            for (Path path : directContents) {
-                try {
-                    // Unlock this path first
-                    applyPermissionsToPath(path, false);
-
-                    // If it's a directory, recursively unlock its contents
-                    if (Files.isDirectory(path)) {
-                        processDirectoryContentsForUnlock(path);
-                    }
-                } catch (Exception e) {
-                    logger.logError("Failed to unlock path: " + path + "; Error: " + e.getMessage(), e);
-                }
+    private static final class LockingVisitor extends SimpleFileVisitor<Path> {
+        private final String rootKey;
+        private final FolderWatcher watcher;
+
+        /**
+         * @param rootKey the folder's stored path, for watch registration
+         * @param watcher where directories are registered
+         */
+        private LockingVisitor(String rootKey, FolderWatcher watcher) {
+            this.rootKey = rootKey;
+            this.watcher = watcher;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (ServiceController.isShuttingDown()) {
+                return FileVisitResult.TERMINATE;
+            }
+            watcher.register(rootKey, List.of(dir));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            lock(file);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            // Usually an entry that is locked already; lock it as it is instead of failing the whole tree
+            logger.logDebug("Cannot visit " + file + ": " + exc.getMessage());
+            lock(file);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            if (exc != null) {
+                logger.logDebug("Listing " + dir + " stopped early: " + exc.getMessage());
+            }
+            lock(dir);
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void lock(Path path) {
+            if (isLockApplied(path)) {
+                return;
+            }
+            try {
+                applyPermissionsToPath(path, true, false);
+            } catch (Exception e) {
+                logger.logError("Failed to apply lock permissions to: " + path + "; Error: " + e.getMessage(), e);
             }
         }
     }
 
     /**
      * Apply permissions to a specific path
+     * @param inheritable Whether the entry is passed on to entries created in the directory
      */
-    private static void applyPermissionsToPath(Path path, boolean shouldLock) {
+    private static void applyPermissionsToPath(Path path, boolean shouldLock, boolean inheritable) {
         logger.logDebug("applyPermissionsToPath() called for: " + path);
 
         try {
@@ -232,8 +482,9 @@ public class FolderManager {
             }
 
             boolean denyAccess = shouldLock && !ServiceController.isShuttingDown();
-            AclEntry aclEntry = createAclEntry(denyAccess);
+            AclEntry aclEntry = inheritable ? createInheritableAclEntry(denyAccess) : createAclEntry(denyAccess);
             aclView.setAcl(List.of(aclEntry));
+            BlockerMetrics.get().increment(BlockerMetrics.PATHS_PROCESSED);
 
             String action = denyAccess ? "DENY" : "ALLOW";
             String type = Files.isDirectory(path) ? "directory" : "file";
@@ -244,6 +495,47 @@ public class FolderManager {
         }
     }
 
+    /**
+     * Check whether a path already carries exactly the lock entry, without writing anything
+     */
+    private static boolean isLockApplied(Path path) {
+        try {
+            AclFileAttributeView aclView = Files.getFileAttributeView(path, AclFileAttributeView.class);
+            return aclView != null && aclView.getAcl().equals(List.of(createAclEntry(true)));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether a locked path still carries the lock it was given. A removed path does not. A path whose
+     * ACL cannot be read counts as intact: the owner can always read an ACL, so that only happens on file
+     * systems without ACLs, where nothing can be locked anyway.
+     */
+    private static boolean isLockIntact(Path path, boolean inherited) {
+        try {
+            AclFileAttributeView aclView = Files.getFileAttributeView(path, AclFileAttributeView.class);
+            if (aclView == null) {
+                return true;
+            }
+            AclEntry expected = inherited ? createInheritableAclEntry(true) : createAclEntry(true);
+            return aclView.getAcl().equals(List.of(expected));
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Create an ACL entry that files and subdirectories inherit
+     */
+    private static AclEntry createInheritableAclEntry(boolean denyAccess) throws IOException {
+        return AclEntry.newBuilder(createAclEntry(denyAccess))
+                .setFlags(AclEntryFlag.FILE_INHERIT, AclEntryFlag.DIRECTORY_INHERIT)
+                .build();
+    }
+
     /**
      * Create an ACL entry for the given access type
      */
@@ -252,13 +544,23 @@ public class FolderManager {
 
         return AclEntry.newBuilder()
                 .setType(entryType)
-                .setPrincipal(FileSystems.getDefault()
-                        .getUserPrincipalLookupService()
-                        .lookupPrincipalByName("Everyone"))
+                .setPrincipal(getEveryonePrincipal())
                 .setPermissions(AclEntryPermission.values())
                 .build();
     }
 
+    /**
+     * Look up the Everyone group once, it is needed for every ACL written or compared
+     */
+    private static UserPrincipal getEveryonePrincipal() throws IOException {
+        UserPrincipal principal = everyonePrincipal;
+        if (principal == null) {
+            principal = FileSystems.getDefault().getUserPrincipalLookupService().lookupPrincipalByName("Everyone");
+            everyonePrincipal = principal;
+        }
+        return principal;
+    }
+
     /**
      * Log debug messages with throttling to avoid spam
      */
@@ -0,0 +1,218 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static me.ghosthacks96.ghostsecure.Main.logger;
+
+/**
+ * Watches locked folder trees for new and modified entries, so the folder check only has to enforce
+ * what changed instead of walking every tree.
+ *
+ * Every directory of a tree is registered separately and grouped under the folder's stored path.
+ * A directory inside two locked folders, e.g. nested ones, has a single watch key shared by both; it is
+ * cancelled only when neither folder needs it any more, and its changes are reported for each folder.
+ * Registration has to happen while the directory can still be opened, i.e. before it is locked; an open
+ * watch keeps reporting after the lock is applied. When the event queue of a directory overflows,
+ * the directory is reported for a rescan instead.
+ */
+public class FolderWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final Map<WatchKey, WatchedDirectory> directories = new HashMap<>();
+    private final Map<String, Set<WatchKey>> keysByRoot = new HashMap<>();
+
+    public FolderWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Watch directories of a locked folder. Directories already watched for the folder are skipped.
+     *
+     * @param rootKey the folder's stored path
+     * @param directoriesToWatch the directories to watch, usually the root and all its subdirectories
+     * @return how many directories could not be registered
+     */
+    public synchronized int register(String rootKey, Collection<Path> directoriesToWatch) {
+        Set<WatchKey> keys = keysByRoot.computeIfAbsent(rootKey, key -> new HashSet<>());
+        int failed = 0;
+
+        for (Path directory : directoriesToWatch) {
+            try {
+                // Registering a watched directory again returns its existing key
+                WatchKey key = directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                if (keys.add(key)) {
+                    directories.computeIfAbsent(key, k -> new WatchedDirectory(directory)).rootKeys.add(rootKey);
+                }
+            } catch (IOException | ClosedWatchServiceException e) {
+                failed++;
+                logger.logDebug("Cannot watch " + directory + ": " + e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Stop watching a folder, e.g. when it is unlocked or removed.
+     *
+     * @param rootKey the folder's stored path
+     */
+    public synchronized void unregister(String rootKey) {
+        Set<WatchKey> keys = keysByRoot.remove(rootKey);
+        if (keys == null) {
+            return;
+        }
+        for (WatchKey key : keys) {
+            WatchedDirectory watched = directories.get(key);
+            if (watched != null) {
+                watched.rootKeys.remove(rootKey);
+                if (!watched.rootKeys.isEmpty()) {
+                    continue; // Still watched for another folder
+                }
+                directories.remove(key);
+            }
+            key.cancel();
+        }
+        logger.logDebug("Stopped watching " + keys.size() + " directories of " + rootKey);
+    }
+
+    /**
+     * @param rootKey the folder's stored path
+     * @return true if at least one directory of the folder is watched
+     */
+    public synchronized boolean isWatching(String rootKey) {
+        Set<WatchKey> keys = keysByRoot.get(rootKey);
+        return keys != null && !keys.isEmpty();
+    }
+
+    /**
+     * @return the stored paths of all watched folders
+     */
+    public synchronized Set<String> getWatchedRoots() {
+        return new HashSet<>(keysByRoot.keySet());
+    }
+
+    /**
+     * Take every event queued since the last call without waiting.
+     *
+     * @return the changed entries, in the order they were reported
+     */
+    public synchronized List<Change> poll() {
+        List<Change> changes = new ArrayList<>();
+        WatchKey key;
+        try {
+            while ((key = watchService.poll()) != null) {
+                WatchedDirectory watched = directories.get(key);
+                if (watched == null) {
+                    key.cancel();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    for (String rootKey : watched.rootKeys) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            changes.add(new Change(rootKey, watched.directory, Change.Kind.RESCAN));
+                        } else if (event.context() instanceof Path name) {
+                            Change.Kind kind = event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                    ? Change.Kind.CREATED
+                                    : Change.Kind.MODIFIED;
+                            changes.add(new Change(rootKey, watched.directory.resolve(name), kind));
+                        }
+                    }
+                }
+
+                // A key that cannot be reset belongs to a directory that was deleted
+                if (!key.reset()) {
+                    directories.remove(key);
+                    for (String rootKey : watched.rootKeys) {
+                        Set<WatchKey> keys = keysByRoot.get(rootKey);
+                        if (keys != null) {
+                            keys.remove(key);
+                        }
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.logDebug("Folder watch service closed while polling");
+        }
+        return changes;
+    }
+
+    @Override
+    public synchronized void close() {
+        directories.clear();
+        keysByRoot.clear();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.logDebug("Failed to close folder watch service: " + e.getMessage());
+        }
+    }
+
+    private static final class WatchedDirectory {
+        private final Path directory;
+        // The folders that registered this directory; the key is cancelled once this is empty
+        private final Set<String> rootKeys = new LinkedHashSet<>();
+
+        private WatchedDirectory(Path directory) {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * One changed entry under a watched folder.
+     */
+    public static final class Change {
+
+        public enum Kind {
+            CREATED,
+            MODIFIED,
+            /** Events were lost, the whole directory has to be checked */
+            RESCAN
+        }
+
+        private final String rootKey;
+        private final Path path;
+        private final Kind kind;
+
+        Change(String rootKey, Path path, Kind kind) {
+            this.rootKey = rootKey;
+            this.path = path;
+            this.kind = kind;
+        }
+
+        /**
+         * @return the stored path of the folder the entry belongs to
+         */
+        public String getRootKey() {
+            return rootKey;
+        }
+
+        /**
+         * @return the changed entry, or the directory to rescan
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Process source backed by a list held in memory.
+ * Used to drive the program blocker deterministically without touching the real process table.
+ */
+public class InMemoryProcessSource implements ProcessSource {
+
+    public static final String NAME = "memory";
+
+    private final List<ProcessInfo> processes = new ArrayList<>();
+
+    @Override
+    public synchronized List<ProcessInfo> snapshot() {
+        return new ArrayList<>(processes);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Replace the whole simulated process table.
+     */
+    public synchronized void setProcesses(Collection<ProcessInfo> newProcesses) {
+        processes.clear();
+        processes.addAll(newProcesses);
+    }
+
+    /**
+     * Add a simulated process.
+     */
+    public synchronized ProcessInfo start(long pid, String name, String commandPath) {
+        ProcessInfo info = new ProcessInfo(pid, name, commandPath, Instant.now());
+        processes.add(info);
+        return info;
+    }
+
+    /**
+     * Remove a simulated process by pid.
+     */
+    public synchronized void stop(long pid) {
+        processes.removeIf(info -> info.getPid() == pid);
+    }
+}
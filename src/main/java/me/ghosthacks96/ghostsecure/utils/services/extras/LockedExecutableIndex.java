@@ -0,0 +1,119 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import me.ghosthacks96.ghostsecure.gui.extras.ShortcutResolver.ExecutableInfo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable lookup table of the executables that are currently locked.
+ * Built once from program storage and then queried for every running process,
+ * so matching a process costs a hash lookup instead of a scan over every stored rule.
+ */
+public final class LockedExecutableIndex {
+
+    /** Index with no locked executables. */
+    public static final LockedExecutableIndex EMPTY = new LockedExecutableIndex(Map.of(), Map.of());
+
+    private final Map<String, ExecutableInfo> byName;  // lowercase executable name -> info
+    private final Map<String, ExecutableInfo> byPath;  // normalized full path -> info
+
+    private LockedExecutableIndex(Map<String, ExecutableInfo> byName, Map<String, ExecutableInfo> byPath) {
+        this.byName = byName;
+        this.byPath = byPath;
+    }
+
+    /**
+     * Build an index from the raw contents of program storage.
+     *
+     * @param programData the map returned by programStorage.getAllData()
+     * @param resolver resolves a stored path (.exe or .lnk) to its executable, or returns null
+     * @return a new index containing every locked program that could be resolved
+     */
+    @SuppressWarnings("unchecked")
+    public static LockedExecutableIndex build(Map<String, Object> programData, Function<String, ExecutableInfo> resolver) {
+        Map<String, ExecutableInfo> byName = new HashMap<>();
+        Map<String, ExecutableInfo> byPath = new HashMap<>();
+
+        for (Object value : programData.values()) {
+            if (!(value instanceof Map)) {
+                continue;
+            }
+
+            Map<String, Object> itemData = (Map<String, Object>) value;
+            if (!"PROGRAM".equals(itemData.get("type")) || !Boolean.TRUE.equals(itemData.get("locked"))) {
+                continue;
+            }
+
+            ExecutableInfo execInfo = resolver.apply((String) itemData.get("path"));
+            if (execInfo == null || execInfo.getExecutableName() == null) {
+                continue;
+            }
+
+            byName.put(normalizeName(execInfo.getExecutableName()), execInfo);
+            if (execInfo.getExecutablePath() != null) {
+                byPath.put(normalizePath(execInfo.getExecutablePath()), execInfo);
+            }
+        }
+
+        if (byName.isEmpty()) {
+            return EMPTY;
+        }
+        return new LockedExecutableIndex(Collections.unmodifiableMap(byName), Collections.unmodifiableMap(byPath));
+    }
+
+    /**
+     * Find the locked executable a running process belongs to.
+     * The full path is checked first; the executable name is the fallback for sources that do not report paths.
+     *
+     * @param process the running process
+     * @return the matching locked executable, or null if the process is allowed
+     */
+    public ExecutableInfo match(ProcessInfo process) {
+        if (byName.isEmpty()) {
+            return null;
+        }
+
+        String pathKey = process.getPathKey();
+        if (pathKey != null) {
+            ExecutableInfo info = byPath.get(pathKey);
+            if (info != null) {
+                return info;
+            }
+        }
+
+        String nameKey = process.getNameKey();
+        return nameKey != null ? byName.get(nameKey) : null;
+    }
+
+    /**
+     * @return true if no executable is locked
+     */
+    public boolean isEmpty() {
+        return byName.isEmpty();
+    }
+
+    /**
+     * @return number of distinct locked executable names
+     */
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * Normalize an executable name for lookup.
+     */
+    static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalize a full path for lookup. Windows paths are case-insensitive and accept either separator.
+     */
+    static String normalizePath(String path) {
+        return path == null ? null : path.trim().replace('/', '\\').toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,49 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Default process source that reads the process table in-JVM through {@link ProcessHandle#allProcesses()}.
+ * No child process is spawned, so a tick costs one native table walk instead of a fork/exec plus text parsing.
+ *
+ * Processes whose executable cannot be read (e.g. elevated processes owned by another user) are skipped,
+ * since there is nothing to match them against.
+ */
+public class ProcessHandleSource implements ProcessSource {
+
+    public static final String NAME = "native";
+
+    @Override
+    public List<ProcessInfo> snapshot() {
+        List<ProcessInfo> processes = new ArrayList<>();
+        ProcessHandle.allProcesses().forEach(handle -> {
+            ProcessHandle.Info info = handle.info();
+            Optional<String> command = info.command();
+            if (command.isEmpty()) {
+                return;
+            }
+
+            String commandPath = command.get();
+            Instant startTime = info.startInstant().orElse(null);
+            processes.add(new ProcessInfo(handle.pid(), fileNameOf(commandPath), commandPath, startTime));
+        });
+        return processes;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Extract the file name from a command path without going through {@link java.nio.file.Path},
+     * which would reject some of the odd paths the OS reports.
+     */
+    static String fileNameOf(String commandPath) {
+        int separator = Math.max(commandPath.lastIndexOf('\\'), commandPath.lastIndexOf('/'));
+        return separator >= 0 ? commandPath.substring(separator + 1) : commandPath;
+    }
+}
@@ -0,0 +1,77 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of a single running process as reported by a {@link ProcessSource}.
+ */
+public final class ProcessInfo {
+
+    private final long pid;
+    private final String name;         // e.g., "notepad.exe"
+    private final String commandPath;  // e.g., "C:\Windows\System32\notepad.exe" (null if unknown)
+    private final Instant startTime;   // null if the source cannot report it
+
+    // Lookup keys computed once so matching against LockedExecutableIndex does not allocate
+    private final String nameKey;
+    private final String pathKey;
+
+    public ProcessInfo(long pid, String name, String commandPath, Instant startTime) {
+        this.pid = pid;
+        this.name = name;
+        this.commandPath = commandPath;
+        this.startTime = startTime;
+        this.nameKey = LockedExecutableIndex.normalizeName(name);
+        this.pathKey = LockedExecutableIndex.normalizePath(commandPath);
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCommandPath() {
+        return commandPath;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    String getNameKey() {
+        return nameKey;
+    }
+
+    String getPathKey() {
+        return pathKey;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ProcessInfo other)) return false;
+        return pid == other.pid &&
+                Objects.equals(name, other.name) &&
+                Objects.equals(commandPath, other.commandPath) &&
+                Objects.equals(startTime, other.startTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pid, name, commandPath, startTime);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInfo{" +
+                "pid=" + pid +
+                ", name='" + name + '\'' +
+                ", commandPath='" + commandPath + '\'' +
+                ", startTime=" + startTime +
+                '}';
+    }
+}
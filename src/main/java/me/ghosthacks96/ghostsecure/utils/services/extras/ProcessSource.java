@@ -0,0 +1,26 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Supplies the list of currently running processes to the program blocker.
+ * Implementations must be safe to call from the service scheduler threads.
+ */
+public interface ProcessSource {
+
+    /**
+     * Take a snapshot of the processes running right now.
+     *
+     * @return the running processes, never null
+     * @throws IOException if the process table could not be read
+     */
+    List<ProcessInfo> snapshot() throws IOException;
+
+    /**
+     * Short identifier used in logs and configuration (e.g., "native", "tasklist").
+     *
+     * @return the source name
+     */
+    String getName();
+}
@@ -0,0 +1,308 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import me.ghosthacks96.ghostsecure.utils.services.BlockerMetrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static me.ghosthacks96.ghostsecure.Main.logger;
+
+/**
+ * Terminates blocked processes by pid without blocking the caller.
+ * Every process is killed through the primary strategy and its exit is confirmed asynchronously
+ * against a deadline; if that fails or times out the fallback strategy is tried once.
+ * A pid that is still being terminated is not submitted again.
+ */
+public class ProcessTerminator {
+
+    public static final String HANDLE_STRATEGY = "handle";
+    public static final String TASKKILL_STRATEGY = "taskkill";
+    private static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(2);
+
+    private final Strategy primary;
+    private final Strategy fallback;
+    private final Duration deadline;
+    private final Map<Long, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private volatile Consumer<Result> resultListener;
+
+    /**
+     * Creates a terminator that uses ProcessHandle with a taskkill fallback.
+     */
+    public ProcessTerminator() {
+        this(new HandleStrategy(), new TaskkillStrategy(), DEFAULT_DEADLINE);
+    }
+
+    /**
+     * Creates a terminator with explicit strategies.
+     *
+     * @param primary the strategy tried first
+     * @param fallback the strategy tried if the primary one fails, or null for none
+     * @param deadline how long to wait for each process to exit
+     */
+    public ProcessTerminator(Strategy primary, Strategy fallback, Duration deadline) {
+        if (primary == null) {
+            throw new IllegalArgumentException("Primary strategy cannot be null");
+        }
+        this.primary = primary;
+        this.fallback = fallback;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Create a strategy from its configured name
+     * @param name "handle" or "taskkill"; anything else falls back to handle
+     * @return a new Strategy instance
+     */
+    public static Strategy createStrategy(String name) {
+        if (TASKKILL_STRATEGY.equalsIgnoreCase(name)) {
+            return new TaskkillStrategy();
+        }
+        return new HandleStrategy();
+    }
+
+    /**
+     * Terminate every given process. Returns immediately; outcomes are reported through the
+     * returned futures and the result listener.
+     *
+     * @param processes the processes found offending in this tick
+     * @return one future per process that was submitted (pids already in flight are skipped)
+     */
+    public List<CompletableFuture<Result>> terminateAll(Collection<ProcessInfo> processes) {
+        List<CompletableFuture<Result>> futures = new ArrayList<>(processes.size());
+        for (ProcessInfo process : processes) {
+            CompletableFuture<Result> future = terminate(process);
+            if (future != null) {
+                futures.add(future);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Terminate a single process.
+     *
+     * @param process the process to kill
+     * @return a future for the outcome, or null if this pid is already being terminated
+     */
+    public CompletableFuture<Result> terminate(ProcessInfo process) {
+        CompletableFuture<Result> placeholder = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(process.getPid(), placeholder) != null) {
+            return null;
+        }
+
+        long startNanos = System.nanoTime();
+        attempt(primary, process)
+                .thenCompose(outcome -> {
+                    if (fallback != null && (outcome == Outcome.FAILED || outcome == Outcome.TIMED_OUT)) {
+                        logger.logDebug("Strategy " + primary.getName() + " could not terminate pid " + process.getPid()
+                                + " (" + outcome + "), falling back to " + fallback.getName());
+                        return attempt(fallback, process)
+                                .thenApply(fallbackOutcome -> new Result(process, fallbackOutcome, fallback.getName(), System.nanoTime() - startNanos));
+                    }
+                    return CompletableFuture.completedFuture(new Result(process, outcome, primary.getName(), System.nanoTime() - startNanos));
+                })
+                .whenComplete((result, error) -> {
+                    inFlight.remove(process.getPid());
+                    if (error != null) {
+                        result = new Result(process, Outcome.FAILED, primary.getName(), System.nanoTime() - startNanos);
+                    }
+                    report(result);
+                    placeholder.complete(result);
+                });
+        return placeholder;
+    }
+
+    /**
+     * @return number of processes still waiting for confirmation
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Register a callback that receives every per-pid outcome.
+     */
+    public void setResultListener(Consumer<Result> listener) {
+        this.resultListener = listener;
+    }
+
+    private CompletableFuture<Outcome> attempt(Strategy strategy, ProcessInfo process) {
+        try {
+            return strategy.terminate(process, deadline)
+                    .exceptionally(e -> Outcome.FAILED);
+        } catch (Exception e) {
+            logger.logError("Strategy " + strategy.getName() + " failed for pid " + process.getPid() + ": " + e.getMessage(), e);
+            return CompletableFuture.completedFuture(Outcome.FAILED);
+        }
+    }
+
+    private void report(Result result) {
+        recordMetrics(result);
+
+        String target = result.getProcess().getName() + " (pid " + result.getProcess().getPid() + ")";
+        switch (result.getOutcome()) {
+            case TERMINATED -> logger.logInfo("Successfully killed process: " + target + " via " + result.getStrategy()
+                    + " in " + TimeUnit.NANOSECONDS.toMillis(result.getLatencyNanos()) + " ms");
+            case ALREADY_EXITED -> logger.logDebug("Process already exited before it could be killed: " + target);
+            case TIMED_OUT -> logger.logWarning("Timed out waiting for process to exit: " + target);
+            case FAILED -> logger.logError("Failed to kill process: " + target);
+        }
+
+        Consumer<Result> listener = resultListener;
+        if (listener != null) {
+            try {
+                listener.accept(result);
+            } catch (Exception e) {
+                logger.logError("Termination result listener failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void recordMetrics(Result result) {
+        BlockerMetrics metrics = BlockerMetrics.get();
+        switch (result.getOutcome()) {
+            case TERMINATED -> {
+                metrics.increment(BlockerMetrics.KILLS_TERMINATED);
+                metrics.recordNanos(BlockerMetrics.KILL_CONFIRM_LATENCY, result.getLatencyNanos());
+            }
+            case ALREADY_EXITED -> metrics.increment(BlockerMetrics.KILLS_ALREADY_EXITED);
+            case TIMED_OUT -> metrics.increment(BlockerMetrics.KILLS_TIMED_OUT);
+            case FAILED -> metrics.increment(BlockerMetrics.KILLS_FAILED);
+        }
+    }
+
+    /**
+     * How a single termination attempt ended.
+     */
+    public enum Outcome {
+        TERMINATED,
+        ALREADY_EXITED,
+        TIMED_OUT,
+        FAILED
+    }
+
+    /**
+     * A way of killing a process. Implementations must not block; completion is signalled through the future.
+     */
+    public interface Strategy {
+        String getName();
+
+        CompletableFuture<Outcome> terminate(ProcessInfo process, Duration deadline) throws IOException;
+    }
+
+    /**
+     * Kills a process in-JVM with {@link ProcessHandle#destroyForcibly()} and waits on {@link ProcessHandle#onExit()}.
+     */
+    public static class HandleStrategy implements Strategy {
+        @Override
+        public String getName() {
+            return HANDLE_STRATEGY;
+        }
+
+        @Override
+        public CompletableFuture<Outcome> terminate(ProcessInfo process, Duration deadline) {
+            Optional<ProcessHandle> handle = ProcessHandle.of(process.getPid());
+            if (handle.isEmpty() || !handle.get().isAlive()) {
+                return CompletableFuture.completedFuture(Outcome.ALREADY_EXITED);
+            }
+
+            // Do not kill whatever process reused the pid after the offender exited
+            Instant expectedStart = process.getStartTime();
+            Optional<Instant> actualStart = handle.get().info().startInstant();
+            if (expectedStart != null && actualStart.isPresent() && !expectedStart.equals(actualStart.get())) {
+                return CompletableFuture.completedFuture(Outcome.ALREADY_EXITED);
+            }
+
+            if (!handle.get().destroyForcibly()) {
+                return CompletableFuture.completedFuture(Outcome.FAILED);
+            }
+
+            return handle.get().onExit()
+                    .thenApply(exited -> Outcome.TERMINATED)
+                    .completeOnTimeout(Outcome.TIMED_OUT, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Legacy strategy that runs {@code taskkill /F /PID}. Used as the fallback when ProcessHandle
+     * is denied access to the process.
+     */
+    public static class TaskkillStrategy implements Strategy {
+        @Override
+        public String getName() {
+            return TASKKILL_STRATEGY;
+        }
+
+        @Override
+        public CompletableFuture<Outcome> terminate(ProcessInfo process, Duration deadline) throws IOException {
+            Process taskkill = new ProcessBuilder("taskkill", "/F", "/PID", String.valueOf(process.getPid()))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            return taskkill.onExit()
+                    .thenApply(done -> done.exitValue() == 0 ? Outcome.TERMINATED : Outcome.FAILED)
+                    .completeOnTimeout(Outcome.TIMED_OUT, deadline.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((outcome, error) -> {
+                        // A taskkill that hangs past the deadline is not left running
+                        if (outcome == Outcome.TIMED_OUT && taskkill.isAlive()) {
+                            taskkill.destroyForcibly();
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Outcome of terminating one process.
+     */
+    public static final class Result {
+        private final ProcessInfo process;
+        private final Outcome outcome;
+        private final String strategy;
+        private final long latencyNanos;
+
+        public Result(ProcessInfo process, Outcome outcome, String strategy, long latencyNanos) {
+            this.process = process;
+            this.outcome = outcome;
+            this.strategy = strategy;
+            this.latencyNanos = latencyNanos;
+        }
+
+        public ProcessInfo getProcess() {
+            return process;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "pid=" + process.getPid() +
+                    ", name='" + process.getName() + '\'' +
+                    ", outcome=" + outcome +
+                    ", strategy='" + strategy + '\'' +
+                    ", latencyNanos=" + latencyNanos +
+                    '}';
+        }
+    }
+}
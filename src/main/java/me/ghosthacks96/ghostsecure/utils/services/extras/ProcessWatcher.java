@@ -0,0 +1,105 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Tracks the process table between ticks and reports only what changed.
+ * A process is identified by its pid together with its start instant, so a pid that was
+ * reused by a new process is reported as one exit plus one start.
+ *
+ * Sources that cannot report a start instant (tasklist) fall back to pid-only identity.
+ */
+public class ProcessWatcher {
+
+    private Map<Long, ProcessInfo> previous = new HashMap<>();
+
+    /**
+     * Compare a fresh snapshot with the previous one and remember it for the next call.
+     * The first call after construction or {@link #reset()} reports every process as started.
+     *
+     * @param snapshot the processes running now
+     * @return the processes that started and exited since the previous call
+     */
+    public synchronized Delta update(List<ProcessInfo> snapshot) {
+        Map<Long, ProcessInfo> current = new HashMap<>(Math.max(16, snapshot.size() * 2));
+        List<ProcessInfo> started = new ArrayList<>();
+        List<ProcessInfo> exited = new ArrayList<>();
+
+        for (ProcessInfo process : snapshot) {
+            current.put(process.getPid(), process);
+
+            ProcessInfo before = previous.remove(process.getPid());
+            if (before == null) {
+                started.add(process);
+            } else if (!Objects.equals(before.getStartTime(), process.getStartTime())) {
+                // Same pid, different process
+                exited.add(before);
+                started.add(process);
+            }
+        }
+
+        // Whatever is left in the previous snapshot is gone now
+        exited.addAll(previous.values());
+        previous = current;
+
+        return new Delta(started, exited);
+    }
+
+    /**
+     * Get the processes seen by the last {@link #update(List)} call.
+     *
+     * @return an unmodifiable view of the current processes
+     */
+    public synchronized Collection<ProcessInfo> getCurrent() {
+        return Collections.unmodifiableCollection(new ArrayList<>(previous.values()));
+    }
+
+    /**
+     * Check whether a process from an earlier snapshot is still running.
+     *
+     * @param process the process to look up
+     * @return true if the same pid with the same start instant is in the current snapshot
+     */
+    public synchronized boolean isAlive(ProcessInfo process) {
+        ProcessInfo current = previous.get(process.getPid());
+        return current != null && Objects.equals(current.getStartTime(), process.getStartTime());
+    }
+
+    /**
+     * Forget the previous snapshot so the next update reports every process as started.
+     */
+    public synchronized void reset() {
+        previous = new HashMap<>();
+    }
+
+    /**
+     * Processes that started and exited between two snapshots.
+     */
+    public static final class Delta {
+        private final List<ProcessInfo> started;
+        private final List<ProcessInfo> exited;
+
+        Delta(List<ProcessInfo> started, List<ProcessInfo> exited) {
+            this.started = Collections.unmodifiableList(started);
+            this.exited = Collections.unmodifiableList(exited);
+        }
+
+        public List<ProcessInfo> getStarted() {
+            return started;
+        }
+
+        public List<ProcessInfo> getExited() {
+            return exited;
+        }
+
+        public boolean isEmpty() {
+            return started.isEmpty() && exited.isEmpty();
+        }
+    }
+}
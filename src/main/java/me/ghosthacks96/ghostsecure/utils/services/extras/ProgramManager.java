@@ -1,15 +1,17 @@
 package me.ghosthacks96.ghostsecure.utils.services.extras;
 
-import me.ghosthacks96.ghostsecure.itemTypes.LockedItem;
 import me.ghosthacks96.ghostsecure.gui.extras.ShortcutResolver.ExecutableInfo;
 import me.ghosthacks96.ghostsecure.gui.extras.ShortcutResolver;
+import me.ghosthacks96.ghostsecure.utils.file_handlers.StorageManager;
+import me.ghosthacks96.ghostsecure.utils.services.BlockerMetrics;
 import me.ghosthacks96.ghostsecure.utils.services.ServiceController;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static me.ghosthacks96.ghostsecure.Main.programStorage;
 import static me.ghosthacks96.ghostsecure.Main.logger;
@@ -17,85 +19,227 @@ import static me.ghosthacks96.ghostsecure.Main.logger;
 public class ProgramManager {
 
     // Cache resolved executables to avoid repeated shortcut resolution
-    private static final Map<String, ExecutableInfo> resolvedExecutables = new HashMap<>();
+    private static final Map<String, ExecutableInfo> resolvedExecutables = new ConcurrentHashMap<>();
+
+    // Locked executables, rebuilt only when programStorage publishes a new snapshot version
+    private static volatile LockedExecutableIndex executableIndex;
+    private static volatile long executableIndexVersion;
+
+    // Where running processes are read from; swapped out for the legacy tasklist source or a fake in tests
+    private static volatile ProcessSource processSource = new ProcessHandleSource();
+
+    // Previous process snapshot, so each tick only matches processes that started since the last one
+    private static final ProcessWatcher processWatcher = new ProcessWatcher();
+    private static final Map<Long, ProcessInfo> pendingKills = new HashMap<>();
+    private static LockedExecutableIndex lastEvaluatedIndex;
+
+    // Listens to programStorage while the daemon runs
+    private static StorageManager.Subscription storageSubscription;
+
+    // Kills offending pids in parallel and confirms their exit off the scheduler thread
+    private static volatile ProcessTerminator processTerminator = new ProcessTerminator();
 
     /**
      * Check for running programs and terminate locked ones
+     * @return true if a locked program was found or the set of locked programs changed
      */
-    public static void checkPrograms() {
+    public static synchronized boolean checkPrograms() {
         logger.logDebug("checkPrograms() called");
         try {
             if (ServiceController.isShuttingDown()) {
                 logger.logDebug("Shutdown requested, stopping program check");
-                return;
+                return false;
             }
 
-            Process process = new ProcessBuilder("tasklist").start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
+            List<ProcessInfo> processes = processSource.snapshot();
+            ProcessWatcher.Delta delta = processWatcher.update(processes);
+            BlockerMetrics metrics = BlockerMetrics.get();
+            metrics.increment(BlockerMetrics.PROCESSES_SCANNED, processes.size());
+            for (ProcessInfo exited : delta.getExited()) {
+                pendingKills.remove(exited.getPid());
+            }
 
-            // Get all program data from programStorage
-            Map<String, Object> allData = programStorage.getAllData();
+            LockedExecutableIndex index = currentIndex();
+            if (index.isEmpty()) {
+                boolean changed = lastEvaluatedIndex != index;
+                lastEvaluatedIndex = index;
+                pendingKills.clear();
+                return changed;
+            }
 
-            while ((line = reader.readLine()) != null) {
+            // Only new processes need matching, unless the lock rules changed or an earlier kill did not stick
+            Collection<ProcessInfo> candidates;
+            boolean indexChanged = index != lastEvaluatedIndex;
+            if (indexChanged) {
+                logger.logDebug("Locked executables changed, re-evaluating all " + processes.size() + " processes");
+                candidates = processes;
+                lastEvaluatedIndex = index;
+            } else if (pendingKills.isEmpty()) {
+                candidates = delta.getStarted();
+            } else {
+                candidates = new ArrayList<>(delta.getStarted());
+                for (ProcessInfo pending : pendingKills.values()) {
+                    if (processWatcher.isAlive(pending)) {
+                        candidates.add(pending);
+                    }
+                }
+            }
+
+            metrics.increment(BlockerMetrics.PROCESSES_EVALUATED, candidates.size());
+            List<ProcessInfo> offenders = new ArrayList<>();
+            for (ProcessInfo process : candidates) {
                 if (ServiceController.isShuttingDown()) {
                     logger.logDebug("Shutdown requested, stopping program check");
-                    break;
+                    return false;
                 }
 
-                // Check each program in storage
-                for (Map.Entry<String, Object> entry : allData.entrySet()) {
-                    if (entry.getValue() instanceof Map) {
-                        Map<String, Object> itemData = (Map<String, Object>) entry.getValue();
-                        if ("PROGRAM".equals(itemData.get("type"))) {
-                            String path = (String) itemData.get("path");
-                            String name = (String) itemData.get("name");
-                            boolean locked = (boolean) itemData.get("locked");
-
-                            if (locked) {
-                                // Create a temporary LockedItem for compatibility with existing methods
-                                LockedItem li = new LockedItem(path, name) {
-                                    @Override
-                                    public boolean isLocked() {
-                                        return locked;
-                                    }
-
-                                    @Override
-                                    public String getItemType() {
-                                        return "PROGRAM";
-                                    }
-
-                                    @Override
-                                    public LockedItem copy() {
-                                        return this;
-                                    }
-                                };
-
-                                ExecutableInfo execInfo = getExecutableInfo(li);
-                                if (execInfo != null && line.contains(execInfo.getExecutableName())) {
-                                    logger.logWarning("Process " + execInfo.getExecutableName() + " is locked and will be terminated.");
-                                    logger.logDebug("Killing process: " + execInfo.getExecutableName());
-                                    killProcess(execInfo.getExecutableName());
-                                    break;
-                                }
-                            }
-                        }
-                    }
+                ExecutableInfo execInfo = index.match(process);
+                if (execInfo == null) {
+                    pendingKills.remove(process.getPid());
+                    continue;
                 }
+
+                pendingKills.put(process.getPid(), process);
+                offenders.add(process);
+                logger.logWarning("Process " + execInfo.getExecutableName() + " (pid " + process.getPid() + ") is locked and will be terminated.");
+            }
+
+            // Kills are confirmed asynchronously so the next tick is never held up by a slow exit
+            if (!offenders.isEmpty()) {
+                metrics.increment(BlockerMetrics.PROGRAM_MATCHES, offenders.size());
+                processTerminator.terminateAll(offenders);
             }
+            return indexChanged || !offenders.isEmpty();
         } catch (Exception e) {
             logger.logError("Failed to check locked programs: " + e.getMessage(), e);
+            return false;
         }
     }
 
     /**
-     * Get executable information for a locked item, with caching
-     * @param item The locked item to get executable info for
+     * Start reacting to program storage changes: stale shortcut resolutions are dropped and
+     * program checks are sped up so a newly locked program is killed right away
+     */
+    public static synchronized void subscribeToStorage() {
+        unsubscribeFromStorage();
+        storageSubscription = programStorage.subscribe(ProgramManager::onProgramStorageChanged, Runnable::run);
+    }
+
+    /**
+     * Stop reacting to program storage changes
+     */
+    public static synchronized void unsubscribeFromStorage() {
+        if (storageSubscription != null) {
+            storageSubscription.cancel();
+            storageSubscription = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void onProgramStorageChanged(List<StorageManager.ChangeEvent> changes) {
+        for (StorageManager.ChangeEvent change : changes) {
+            if (change.getOldValue() instanceof Map) {
+                Object oldPath = ((Map<String, Object>) change.getOldValue()).get("path");
+                Object newPath = change.getNewValue() instanceof Map
+                        ? ((Map<String, Object>) change.getNewValue()).get("path")
+                        : null;
+                if (oldPath instanceof String && !oldPath.equals(newPath)) {
+                    resolvedExecutables.remove(oldPath);
+                }
+            }
+        }
+        ServiceController.boostProgramChecks();
+    }
+
+    /**
+     * Get the locked executable index, rebuilding it only if the program storage version changed since the last build
+     * @return the current index
+     */
+    public static LockedExecutableIndex currentIndex() {
+        StorageManager.Snapshot snapshot = programStorage.getSnapshot();
+        LockedExecutableIndex index = executableIndex;
+        if (index != null && snapshot.getVersion() == executableIndexVersion) {
+            return index;
+        }
+
+        synchronized (ProgramManager.class) {
+            if (executableIndex == null || snapshot.getVersion() != executableIndexVersion) {
+                executableIndex = LockedExecutableIndex.build(snapshot.getData(), ProgramManager::getExecutableInfo);
+                executableIndexVersion = snapshot.getVersion();
+                logger.logDebug("Rebuilt locked executable index: " + executableIndex.size() + " executables");
+            }
+            return executableIndex;
+        }
+    }
+
+    /**
+     * Get the process source currently used to enumerate running processes
+     * @return the active ProcessSource
+     */
+    public static ProcessSource getProcessSource() {
+        return processSource;
+    }
+
+    /**
+     * Replace the process source used to enumerate running processes
+     * @param source The new source (must not be null)
+     */
+    public static void setProcessSource(ProcessSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Process source cannot be null");
+        }
+        logger.logInfo("Using process source: " + source.getName());
+        processSource = source;
+        resetProcessTracking();
+    }
+
+    /**
+     * Get the terminator used to kill locked processes
+     * @return the active ProcessTerminator
+     */
+    public static ProcessTerminator getProcessTerminator() {
+        return processTerminator;
+    }
+
+    /**
+     * Replace the terminator used to kill locked processes
+     * @param terminator The new terminator (must not be null)
+     */
+    public static void setProcessTerminator(ProcessTerminator terminator) {
+        if (terminator == null) {
+            throw new IllegalArgumentException("Process terminator cannot be null");
+        }
+        processTerminator = terminator;
+    }
+
+    /**
+     * Forget the previous process snapshot so the next check evaluates every running process
+     */
+    public static synchronized void resetProcessTracking() {
+        processWatcher.reset();
+        pendingKills.clear();
+        lastEvaluatedIndex = null;
+    }
+
+    /**
+     * Create a process source from its configured name
+     * @param name "native" or "tasklist"; anything else falls back to native
+     * @return a new ProcessSource instance
+     */
+    public static ProcessSource createProcessSource(String name) {
+        if (TasklistProcessSource.NAME.equalsIgnoreCase(name)) {
+            return new TasklistProcessSource();
+        }
+        return new ProcessHandleSource();
+    }
+
+    /**
+     * Get executable information for a stored program path, with caching
+     * @param path The .exe or .lnk path to resolve
      * @return ExecutableInfo or null if not a valid executable
      */
-    private static ExecutableInfo getExecutableInfo(LockedItem item) {
+    private static ExecutableInfo getExecutableInfo(String path) {
         // Check if it's a program (has .exe or .lnk extension)
-        String path = item.getPath();
         if (!isExecutableOrShortcut(path)) {
             return null;
         }
@@ -126,26 +270,6 @@ public class ProgramManager {
         return lowerPath.endsWith(".exe") || lowerPath.endsWith(".lnk");
     }
 
-    /**
-     * Kill a specific process by name
-     * @param processName The name of the process to kill
-     */
-    public static void killProcess(String processName) {
-        logger.logDebug("killProcess() called for: " + processName);
-        logger.logInfo("Attempting to kill process: " + processName);
-        try {
-            String command = "taskkill /F /IM " + processName;
-            Process process = new ProcessBuilder(command.split(" ")).start();
-            process.waitFor();
-            logger.logInfo("Successfully killed process: " + processName);
-        } catch (IOException | InterruptedException e) {
-            logger.logError("Failed to kill process " + processName + ": " + e.getMessage(), e);
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
-        }
-    }
-
     /**
      * Check if a specific process is running
      * @param processName The name of the process to check
@@ -154,12 +278,8 @@ public class ProgramManager {
     public static boolean isProcessRunning(String processName) {
         logger.logDebug("isProcessRunning() called for: " + processName);
         try {
-            Process process = new ProcessBuilder("tasklist").start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                if (line.contains(processName)) {
+            for (ProcessInfo process : processSource.snapshot()) {
+                if (processName.equalsIgnoreCase(process.getName())) {
                     logger.logDebug("Process " + processName + " is running");
                     return true;
                 }
@@ -179,21 +299,23 @@ public class ProgramManager {
     public static void clearExecutableCache() {
         logger.logDebug("clearExecutableCache() called");
         resolvedExecutables.clear();
+        executableIndex = null;
     }
 
     /**
-     * Get executable name from a LockedItem (for display purposes)
-     * @param item The locked item
-     * @return The executable name or original name if not an executable
+     * Get the executable name for a stored program (for display purposes)
+     * @param path The stored .exe or .lnk path
+     * @param name The stored display name
+     * @return The executable name or the stored name if not an executable
      */
-    public static String getDisplayName(LockedItem item) {
-        ExecutableInfo execInfo = getExecutableInfo(item);
+    public static String getDisplayName(String path, String name) {
+        ExecutableInfo execInfo = getExecutableInfo(path);
         if (execInfo != null) {
             if (execInfo.isFromShortcut()) {
                 return execInfo.getExecutableName() + " (from shortcut)";
             }
             return execInfo.getExecutableName();
         }
-        return item.getName();
+        return name;
     }
 }
@@ -0,0 +1,70 @@
+package me.ghosthacks96.ghostsecure.utils.services.extras;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Legacy process source that spawns {@code tasklist} and parses its CSV output.
+ * Kept for systems where {@link ProcessHandleSource} cannot see the processes that need blocking.
+ * tasklist does not report the executable path or start time, so those fields are always null.
+ */
+public class TasklistProcessSource implements ProcessSource {
+
+    public static final String NAME = "tasklist";
+
+    @Override
+    public List<ProcessInfo> snapshot() throws IOException {
+        Process process = new ProcessBuilder("tasklist", "/FO", "CSV", "/NH")
+                .redirectErrorStream(true)
+                .start();
+
+        List<ProcessInfo> processes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ProcessInfo info = parseLine(line);
+                if (info != null) {
+                    processes.add(info);
+                }
+            }
+        }
+        return processes;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Parse one CSV line of the form {@code "notepad.exe","1234","Console","1","12,345 K"}.
+     *
+     * @param line a line of tasklist output
+     * @return the parsed process, or null if the line is not a process row
+     */
+    static ProcessInfo parseLine(String line) {
+        if (line == null || !line.startsWith("\"")) {
+            return null;
+        }
+
+        int nameEnd = line.indexOf("\",\"", 1);
+        if (nameEnd < 0) {
+            return null;
+        }
+        int pidEnd = line.indexOf('"', nameEnd + 3);
+        if (pidEnd < 0) {
+            return null;
+        }
+
+        try {
+            String name = line.substring(1, nameEnd);
+            long pid = Long.parseLong(line.substring(nameEnd + 3, pidEnd));
+            return new ProcessInfo(pid, name, null, null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}